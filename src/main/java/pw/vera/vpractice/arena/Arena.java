@@ -2,6 +2,8 @@ package pw.vera.vpractice.arena;
 
 import org.bukkit.Location;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Represents a practice arena
  */
@@ -13,14 +15,15 @@ public class Arena {
     private Location min;
     private Location max;
     private boolean enabled;
-    private boolean inUse;
     private boolean sumo;
-    private String currentMatchId;
+    private volatile String currentMatchId;
+    
+    // Token of the reservation holding this arena, 0 while free
+    private final AtomicLong reservation = new AtomicLong();
 
     public Arena(String name) {
         this.name = name;
         this.enabled = true;
-        this.inUse = false;
         this.sumo = false;
     }
 
@@ -31,7 +34,6 @@ public class Arena {
         this.min = min;
         this.max = max;
         this.enabled = enabled;
-        this.inUse = false;
         this.sumo = false;
     }
     
@@ -42,7 +44,6 @@ public class Arena {
         this.min = min;
         this.max = max;
         this.enabled = enabled;
-        this.inUse = false;
         this.sumo = sumo;
     }
 
@@ -52,8 +53,9 @@ public class Arena {
     public Location getMin() { return min; }
     public Location getMax() { return max; }
     public boolean isEnabled() { return enabled; }
-    public boolean isInUse() { return inUse; }
+    public boolean isInUse() { return reservation.get() != 0; }
     public boolean isSumo() { return sumo; }
+    public ArenaType getType() { return ArenaType.of(sumo); }
     public String getCurrentMatchId() { return currentMatchId; }
 
     public void setSpawnA(Location loc) { this.spawnA = loc; }
@@ -63,13 +65,26 @@ public class Arena {
     public void setEnabled(boolean enabled) { this.enabled = enabled; }
     public void setSumo(boolean sumo) { this.sumo = sumo; }
     
-    public void setInUse(boolean inUse, String matchId) {
-        this.inUse = inUse;
-        this.currentMatchId = matchId;
+    public void setCurrentMatchId(String matchId) { this.currentMatchId = matchId; }
+    
+    /**
+     * Claim this arena for {@code token} if it is free. Use {@link ArenaManager#reserveArena}.
+     */
+    boolean reserve(long token) {
+        return reservation.compareAndSet(0L, token);
+    }
+
+    /**
+     * Free this arena if {@code token} still holds it.
+     */
+    boolean release(long token) {
+        if (!reservation.compareAndSet(token, 0L)) return false;
+        currentMatchId = null;
+        return true;
     }
 
     public boolean isAvailable() {
-        return enabled && !inUse;
+        return enabled && !isInUse();
     }
 
     public boolean isSetup() {
@@ -0,0 +1,138 @@
+package pw.vera.vpractice.arena;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out arenas from a lock-free free-list per {@link ArenaType}, so
+ * finding an arena is a poll rather than a scan over every arena, and two
+ * callers can never get the same one: an arena is only handed out once
+ * its token has been swapped in with a CAS.
+ *
+ * Free arenas are reused in release order, which also spreads matches
+ * evenly across them. Arenas that are disabled or not set up stay in the
+ * list but are skipped.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+final class ArenaAllocator {
+
+    private final Map<ArenaType, ConcurrentLinkedQueue<Arena>> free = new EnumMap<>(ArenaType.class);
+    private final Map<ArenaType, AtomicInteger> inUse = new EnumMap<>(ArenaType.class);
+    private final Map<ArenaType, AtomicInteger> peak = new EnumMap<>(ArenaType.class);
+    private final Map<ArenaType, AtomicLong> misses = new EnumMap<>(ArenaType.class);
+    private final Set<Arena> registered = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextToken = new AtomicLong();
+
+    ArenaAllocator() {
+        // Filled once here and only read afterwards, so the EnumMaps need no locking
+        for (ArenaType type : ArenaType.values()) {
+            free.put(type, new ConcurrentLinkedQueue<>());
+            inUse.put(type, new AtomicInteger());
+            peak.put(type, new AtomicInteger());
+            misses.put(type, new AtomicLong());
+        }
+    }
+
+    void add(Arena arena) {
+        if (registered.add(arena) && !arena.isInUse()) {
+            free.get(arena.getType()).offer(arena);
+        }
+    }
+
+    /**
+     * Stop handing out an arena. A match already in it keeps it until release.
+     */
+    void remove(Arena arena) {
+        if (registered.remove(arena)) {
+            free.get(arena.getType()).remove(arena);
+        }
+    }
+
+    /**
+     * Reserve a free arena of this type, or null if none is free.
+     */
+    ArenaReservation reserve(ArenaType type) {
+        ConcurrentLinkedQueue<Arena> list = free.get(type);
+        List<Arena> skipped = null;
+        ArenaReservation reservation = null;
+
+        Arena arena;
+        while ((arena = list.poll()) != null) {
+            if (!registered.contains(arena)) continue;
+            if (arena.getType() != type) {
+                // Switched between sumo and standard since it was freed
+                free.get(arena.getType()).offer(arena);
+                continue;
+            }
+            if (!arena.isEnabled() || !arena.isSetup()) {
+                if (skipped == null) skipped = new ArrayList<>();
+                skipped.add(arena);
+                continue;
+            }
+            long token = nextToken.incrementAndGet();
+            if (arena.reserve(token)) {
+                reservation = new ArenaReservation(arena, token);
+                break;
+            }
+            // Already held, so it shouldn't have been listed; release will list it again
+        }
+
+        if (skipped != null) {
+            list.addAll(skipped);
+        }
+        if (reservation == null) {
+            misses.get(type).incrementAndGet();
+            return null;
+        }
+
+        int used = inUse.get(type).incrementAndGet();
+        peak.get(type).accumulateAndGet(used, Math::max);
+        return reservation;
+    }
+
+    /**
+     * Give an arena back. Returns false if this reservation no longer holds it.
+     */
+    boolean release(ArenaReservation reservation) {
+        Arena arena = reservation.getArena();
+        if (!arena.release(reservation.getToken())) return false;
+
+        inUse.get(arena.getType()).decrementAndGet();
+        if (registered.contains(arena)) {
+            free.get(arena.getType()).offer(arena);
+        }
+        return true;
+    }
+
+    // =========================================================================
+    // STATS
+    // =========================================================================
+
+    int getCount(ArenaType type) {
+        int count = 0;
+        for (Arena arena : registered) {
+            if (arena.getType() == type) count++;
+        }
+        return count;
+    }
+
+    int getInUse(ArenaType type) {
+        return inUse.get(type).get();
+    }
+
+    int getPeak(ArenaType type) {
+        return peak.get(type).get();
+    }
+
+    /**
+     * Reservations that found no free arena.
+     */
+    long getMisses(ArenaType type) {
+        return misses.get(type).get();
+    }
+}
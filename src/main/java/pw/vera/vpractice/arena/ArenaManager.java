@@ -16,6 +16,7 @@ public class ArenaManager {
 
     private final vPractice plugin;
     private final Map<String, Arena> arenas = new ConcurrentHashMap<>();
+    private final ArenaAllocator allocator = new ArenaAllocator();
 
     public ArenaManager(vPractice plugin) {
         this.plugin = plugin;
@@ -42,6 +43,10 @@ public class ArenaManager {
             loadDefaultArenas();
         }
         
+        for (Arena arena : arenas.values()) {
+            allocator.add(arena);
+        }
+        
         plugin.log("&7Loaded &f" + arenas.size() + " &7arenas");
     }
 
@@ -205,47 +210,46 @@ public class ArenaManager {
         return arenas.values();
     }
 
-    public Arena getAvailableArena() {
-        for (Arena arena : arenas.values()) {
-            if (arena.isAvailable()) {
-                return arena;
-            }
-        }
-        return null;
+    // =========================================================================
+    // ALLOCATION
+    // =========================================================================
+
+    /**
+     * Reserve a free arena for a ladder type (sumo ladders need a sumo arena),
+     * or null if none is free. The match must give it back with {@link #releaseArena}.
+     */
+    public ArenaReservation reserveArena(boolean sumo) {
+        return allocator.reserve(ArenaType.of(sumo));
     }
 
-    public Arena getRandomAvailableArena() {
-        List<Arena> available = new ArrayList<>();
-        for (Arena arena : arenas.values()) {
-            if (arena.isAvailable() && !arena.isSumo()) {
-                available.add(arena);
-            }
-        }
-        if (available.isEmpty()) return null;
-        return available.get(new Random().nextInt(available.size()));
+    public ArenaReservation reserveArena(ArenaType type) {
+        return allocator.reserve(type);
     }
-    
+
     /**
-     * Get a random available arena for a specific ladder type
+     * Free a reserved arena. Safe to call more than once; only the first call frees it.
      */
-    public Arena getRandomAvailableArena(boolean sumo) {
-        List<Arena> available = new ArrayList<>();
-        for (Arena arena : arenas.values()) {
-            if (arena.isAvailable() && arena.isSumo() == sumo) {
-                available.add(arena);
-            }
-        }
-        if (available.isEmpty()) return null;
-        return available.get(new Random().nextInt(available.size()));
+    public boolean releaseArena(ArenaReservation reservation) {
+        return reservation != null && allocator.release(reservation);
     }
 
+    public int getArenaCount(ArenaType type) { return allocator.getCount(type); }
+    public int getArenasInUse(ArenaType type) { return allocator.getInUse(type); }
+    public int getPeakArenasInUse(ArenaType type) { return allocator.getPeak(type); }
+    public long getReserveMisses(ArenaType type) { return allocator.getMisses(type); }
+
     public void createArena(String name) {
-        arenas.put(name.toLowerCase(), new Arena(name));
+        Arena arena = new Arena(name);
+        arenas.put(name.toLowerCase(), arena);
+        allocator.add(arena);
         saveArenas();
     }
 
     public void deleteArena(String name) {
-        arenas.remove(name.toLowerCase());
+        Arena removed = arenas.remove(name.toLowerCase());
+        if (removed != null) {
+            allocator.remove(removed);
+        }
         plugin.getConfig().set("arenas." + name.toLowerCase(), null);
         plugin.saveConfig();
     }
@@ -255,7 +259,11 @@ public class ArenaManager {
     }
 
     public void addArena(Arena arena) {
-        arenas.put(arena.getName().toLowerCase(), arena);
+        Arena previous = arenas.put(arena.getName().toLowerCase(), arena);
+        if (previous != null) {
+            allocator.remove(previous);
+        }
+        allocator.add(arena);
         saveArenas();
     }
 
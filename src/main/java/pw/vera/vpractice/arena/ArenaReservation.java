@@ -0,0 +1,23 @@
+package pw.vera.vpractice.arena;
+
+/**
+ * Proof that a match holds an arena. Only the reservation's token can
+ * release it, so a late or repeated release can't free an arena that has
+ * since been handed to another match.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+public final class ArenaReservation {
+
+    private final Arena arena;
+    private final long token;
+
+    ArenaReservation(Arena arena, long token) {
+        this.arena = arena;
+        this.token = token;
+    }
+
+    public Arena getArena() { return arena; }
+    public long getToken() { return token; }
+}
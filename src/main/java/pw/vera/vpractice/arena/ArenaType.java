@@ -0,0 +1,16 @@
+package pw.vera.vpractice.arena;
+
+/**
+ * Kind of arena a ladder needs. Each type has its own pool of free arenas.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+public enum ArenaType {
+    STANDARD,
+    SUMO;
+
+    public static ArenaType of(boolean sumo) {
+        return sumo ? SUMO : STANDARD;
+    }
+}
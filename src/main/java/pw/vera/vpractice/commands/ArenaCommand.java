@@ -7,6 +7,7 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import pw.vera.vpractice.arena.Arena;
+import pw.vera.vpractice.arena.ArenaType;
 import pw.vera.vpractice.vPractice;
 
 /**
@@ -182,6 +183,16 @@ public class ArenaCommand implements CommandExecutor {
             player.sendMessage(color(status + " &e" + arena.getName() + inUse));
         }
 
+        // Utilisation per arena type
+        for (ArenaType type : ArenaType.values()) {
+            int total = plugin.getArenaManager().getArenaCount(type);
+            if (total == 0) continue;
+            player.sendMessage(color("&7" + type.name().toLowerCase() + ": &f" +
+                plugin.getArenaManager().getArenasInUse(type) + "/" + total + " &7in use &8(peak " +
+                plugin.getArenaManager().getPeakArenasInUse(type) + ", " +
+                plugin.getArenaManager().getReserveMisses(type) + " times none free)"));
+        }
+
         player.sendMessage(color("&7&m--------------------------"));
     }
 
@@ -6,6 +6,8 @@ import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import pw.vera.vpractice.elo.Division;
+import pw.vera.vpractice.elo.EloManager;
 import pw.vera.vpractice.kit.Ladder;
 import pw.vera.vpractice.vPractice;
 
@@ -56,19 +58,19 @@ public class EloCommand implements CommandExecutor {
         boolean hasRanked = false;
         
         for (Map.Entry<String, Ladder> entry : ladders.entrySet()) {
-            String ladderName = entry.getKey();
             Ladder ladder = entry.getValue();
             
-            int elo = plugin.getEloManager().getElo(uuid, ladderName);
-            int wins = plugin.getEloManager().getWins(uuid, ladderName);
-            int losses = plugin.getEloManager().getLosses(uuid, ladderName);
+            int elo = plugin.getEloManager().getElo(uuid, ladder.getId());
+            int wins = plugin.getEloManager().getWins(uuid, ladder.getId());
+            int losses = plugin.getEloManager().getLosses(uuid, ladder.getId());
             
             // Only show ladders where they have played or have non-default ELO
             if (wins > 0 || losses > 0 || elo != 1000) {
                 hasRanked = true;
                 String displayName = ChatColor.stripColor(colorize(ladder.getDisplayName()));
                 String eloColor = getEloColor(elo);
-                sender.sendMessage(colorize("&f" + displayName + ": " + eloColor + elo + " &7(" + wins + "W/" + losses + "L)"));
+                sender.sendMessage(colorize("&f" + displayName + ": " + eloColor + elo + " &7(" + wins + "W/" + losses + "L)" +
+                    getStanding(uuid, ladder.getId())));
             }
         }
         
@@ -85,6 +87,16 @@ public class EloCommand implements CommandExecutor {
         return true;
     }
 
+    /**
+     * " Diamond &7(top 4%)" for players with a division on this ladder, else empty.
+     */
+    private String getStanding(UUID uuid, int ladderId) {
+        Division division = plugin.getEloManager().getDivision(uuid, ladderId);
+        if (division == null) return "";
+        double top = plugin.getEloManager().getTopPercent(uuid, ladderId);
+        return " " + division.getDisplay() + " &7(" + EloManager.formatTopPercent(top) + ")";
+    }
+
     private String getEloColor(int elo) {
         if (elo >= 2000) return "&6"; // Gold - Champion
         if (elo >= 1600) return "&d"; // Pink - Diamond
@@ -1,6 +1,5 @@
 package pw.vera.vpractice.commands;
 
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -10,6 +9,7 @@ import pw.vera.vpractice.kit.Ladder;
 import pw.vera.vpractice.vPractice;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * /leaderboard [ladder] - View ELO leaderboards
@@ -49,7 +49,10 @@ public class LeaderboardCommand implements CommandExecutor {
 
     private void showGlobalLeaderboard(Player player) {
         List<Map.Entry<UUID, Integer>> top = plugin.getEloManager().getGlobalLeaderboard(10);
+        resolveNames(player, top, names -> sendGlobalLeaderboard(player, top, names));
+    }
 
+    private void sendGlobalLeaderboard(Player player, List<Map.Entry<UUID, Integer>> top, Map<UUID, String> names) {
         player.sendMessage(color("&7&m---------------------------------"));
         player.sendMessage(color("&6&lGlobal ELO Leaderboard"));
         player.sendMessage(color("&7&m---------------------------------"));
@@ -60,8 +63,7 @@ public class LeaderboardCommand implements CommandExecutor {
         } else {
             int rank = 1;
             for (Map.Entry<UUID, Integer> entry : top) {
-                String name = Bukkit.getOfflinePlayer(entry.getKey()).getName();
-                if (name == null) name = "Unknown";
+                String name = names.getOrDefault(entry.getKey(), "Unknown");
                 
                 String rankColor = getRankColor(rank);
                 player.sendMessage(color(rankColor + "#" + rank + " &f" + name + " &7- &e" + entry.getValue() + " ELO"));
@@ -76,7 +78,11 @@ public class LeaderboardCommand implements CommandExecutor {
 
     private void showLadderLeaderboard(Player player, Ladder ladder) {
         List<Map.Entry<UUID, Integer>> top = plugin.getEloManager().getLadderLeaderboard(ladder.getName(), 10);
+        resolveNames(player, top, names -> sendLadderLeaderboard(player, ladder, top, names));
+    }
 
+    private void sendLadderLeaderboard(Player player, Ladder ladder, List<Map.Entry<UUID, Integer>> top,
+                                       Map<UUID, String> names) {
         player.sendMessage(color("&7&m---------------------------------"));
         player.sendMessage(color("&6&l" + ladder.getDisplayName() + " Leaderboard"));
         player.sendMessage(color("&7&m---------------------------------"));
@@ -87,8 +93,7 @@ public class LeaderboardCommand implements CommandExecutor {
         } else {
             int rank = 1;
             for (Map.Entry<UUID, Integer> entry : top) {
-                String name = Bukkit.getOfflinePlayer(entry.getKey()).getName();
-                if (name == null) name = "Unknown";
+                String name = names.getOrDefault(entry.getKey(), "Unknown");
                 
                 String rankColor = getRankColor(rank);
                 player.sendMessage(color(rankColor + "#" + rank + " &f" + name + " &7- &e" + entry.getValue() + " ELO"));
@@ -100,6 +105,22 @@ public class LeaderboardCommand implements CommandExecutor {
         player.sendMessage(color("&7&m---------------------------------"));
     }
 
+    /**
+     * Names come from the name cache; rows for players not in memory are
+     * loaded off the main thread and the board is sent once they arrive.
+     */
+    private void resolveNames(Player player, List<Map.Entry<UUID, Integer>> top, Consumer<Map<UUID, String>> send) {
+        List<UUID> uuids = new ArrayList<>(top.size());
+        for (Map.Entry<UUID, Integer> entry : top) {
+            uuids.add(entry.getKey());
+        }
+        plugin.getStorageManager().getNameCache().resolve(uuids, names -> {
+            if (player.isOnline()) {
+                send.accept(names);
+            }
+        });
+    }
+
     private String getRankColor(int rank) {
         switch (rank) {
             case 1: return "&6&l";
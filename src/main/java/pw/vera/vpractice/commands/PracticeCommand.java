@@ -5,6 +5,10 @@ import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import pw.vera.vpractice.storage.AutoSaveTask;
+import pw.vera.vpractice.storage.ConnectionPool;
+import pw.vera.vpractice.storage.StorageManager;
+import pw.vera.vpractice.storage.WriteBehindQueue;
 import pw.vera.vpractice.vPractice;
 
 /**
@@ -30,6 +34,14 @@ public class PracticeCommand implements CommandExecutor {
                 sender.sendMessage(color("&aConfiguration and cache reloaded!"));
                 return true;
             }
+            if (args[0].equalsIgnoreCase("storage")) {
+                if (!sender.hasPermission("vpractice.admin")) {
+                    sender.sendMessage(color("&cNo permission."));
+                    return true;
+                }
+                showStorageStats(sender);
+                return true;
+            }
             if (args[0].equalsIgnoreCase("set")) {
                 if (!sender.hasPermission("vpractice.admin")) {
                     sender.sendMessage(color("&cNo permission."));
@@ -66,6 +78,33 @@ public class PracticeCommand implements CommandExecutor {
         return true;
     }
 
+    private void showStorageStats(CommandSender sender) {
+        StorageManager storage = plugin.getStorageManager();
+        sender.sendMessage(color("&6Storage: &f" + storage.getStorageType()));
+
+        AutoSaveTask autoSave = plugin.getAutoSaveTask();
+        if (autoSave != null && autoSave.getRuns() > 0) {
+            long ago = (System.currentTimeMillis() - autoSave.getLastRun()) / 1000L;
+            sender.sendMessage(color("&7Last autosave: &f" + ago + "s ago &7| Snapshot: &f" +
+                String.format("%.2f", autoSave.getLastSnapshotMicros() / 1000.0) + "ms &7| Write: &f" +
+                autoSave.getLastWriteMillis() + "ms &7| Skipped: &f" + autoSave.getSkipped()));
+        }
+
+        ConnectionPool pool = storage.getPool();
+        if (pool == null) return;
+        sender.sendMessage(color("&7Pool: &f" + pool.getActiveConnections() + "&7/&f" + pool.getMaxSize() +
+            " &7active, &f" + pool.getIdleConnections() + " &7idle, &f" + pool.getWaitingThreads() + " &7waiting"));
+        sender.sendMessage(color("&7Peak: &f" + pool.getPeakActive() + " &7| Borrows: &f" + pool.getTotalBorrows() +
+            " &7| Timeouts: &c" + pool.getTimeouts() + " &7| Recycled: &f" + pool.getRecycled()));
+        sender.sendMessage(color("&7Avg wait: &f" + String.format("%.2f", pool.getAverageWaitMillis()) + "ms"));
+
+        WriteBehindQueue queue = storage.getWriteQueue();
+        if (queue == null) return;
+        sender.sendMessage(color("&7Write queue: &f" + queue.getPending() + " &7pending, &f" + queue.getWritten() +
+            " &7written in &f" + queue.getBatches() + " &7batches, &f" + queue.getCoalesced() + " &7coalesced, &c" +
+            queue.getFailures() + " &7failed"));
+    }
+
     private String color(String text) {
         return ChatColor.translateAlternateColorCodes('&', text);
     }
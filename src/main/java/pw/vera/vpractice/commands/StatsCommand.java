@@ -59,12 +59,13 @@ public class StatsCommand implements CommandExecutor {
         // Per-ladder stats
         player.sendMessage(color("&6Ladder Statistics:"));
         for (Ladder ladder : plugin.getKitManager().getAllLadders()) {
-            int elo = plugin.getEloManager().getElo(targetUUID, ladder.getName());
-            int wins = plugin.getEloManager().getWins(targetUUID, ladder.getName());
-            int losses = plugin.getEloManager().getLosses(targetUUID, ladder.getName());
+            int elo = plugin.getEloManager().getElo(targetUUID, ladder.getId());
+            int wins = plugin.getEloManager().getWins(targetUUID, ladder.getId());
+            int losses = plugin.getEloManager().getLosses(targetUUID, ladder.getId());
+            int rank = plugin.getEloManager().getRank(targetUUID, ladder.getId());
             
             player.sendMessage(color("&e" + ladder.getDisplayName() + " &7- &fELO: &e" + elo + 
-                    " &7| &aW: " + wins + " &7| &cL: " + losses));
+                    " &7(#" + rank + ") &7| &aW: " + wins + " &7| &cL: " + losses));
         }
 
         player.sendMessage("");
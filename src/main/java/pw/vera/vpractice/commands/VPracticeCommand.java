@@ -11,6 +11,8 @@ import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.SkullMeta;
+import pw.vera.vpractice.storage.StorageManager;
+import pw.vera.vpractice.storage.StorageMigrator;
 import pw.vera.vpractice.vPractice;
 
 import java.util.Arrays;
@@ -18,6 +20,8 @@ import java.util.List;
 
 /**
  * /vpractice - Opens plugin information GUI with developer credits
+ * /vpractice migrate <from> <to>|status|cancel - Copy data between storage backends
+ * /vpractice migrate prune - Delete kit layouts no player uses any more
  */
 public class VPracticeCommand implements CommandExecutor {
 
@@ -29,6 +33,11 @@ public class VPracticeCommand implements CommandExecutor {
 
     @Override
     public boolean onCommand(CommandSender sender, Command cmd, String label, String[] args) {
+        if (args.length > 0 && args[0].equalsIgnoreCase("migrate")) {
+            handleMigrate(sender, label, args);
+            return true;
+        }
+
         if (!(sender instanceof Player)) {
             sender.sendMessage(color("&cOnly players can use this command!"));
             return true;
@@ -39,6 +48,75 @@ public class VPracticeCommand implements CommandExecutor {
         return true;
     }
 
+    private void handleMigrate(CommandSender sender, String label, String[] args) {
+        if (!sender.hasPermission("vpractice.admin")) {
+            sender.sendMessage(color("&cNo permission."));
+            return;
+        }
+
+        StorageManager storage = plugin.getStorageManager();
+        StorageMigrator migrator = storage.getMigrator();
+
+        if (args.length == 2 && args[1].equalsIgnoreCase("status")) {
+            if (migrator == null) {
+                sender.sendMessage(color("&7No storage migration has been started."));
+            } else {
+                sender.sendMessage(color((migrator.isRunning() ? "&aRunning: &f" : "&7Last run: &f") + migrator));
+            }
+            return;
+        }
+
+        if (args.length == 2 && args[1].equalsIgnoreCase("cancel")) {
+            if (migrator == null || !migrator.isRunning()) {
+                sender.sendMessage(color("&cNo storage migration is running."));
+            } else {
+                migrator.cancel();
+                sender.sendMessage(color("&eStopping after the current batch; progress is saved."));
+            }
+            return;
+        }
+
+        if (args.length == 2 && args[1].equalsIgnoreCase("prune")) {
+            if (storage.pruneKitLayouts(sender)) {
+                sender.sendMessage(color("&7Pruning unused kit layouts..."));
+            } else {
+                sender.sendMessage(color("&cNeeds MySQL or SQLite storage and no running migration."));
+            }
+            return;
+        }
+
+        if (args.length != 3) {
+            sender.sendMessage(color("&cUsage: /" + label + " migrate <json|sqlite|mysql> <json|sqlite|mysql>"));
+            sender.sendMessage(color("&cUsage: /" + label + " migrate <status|cancel|prune>"));
+            return;
+        }
+
+        StorageManager.StorageType from = parseStorageType(args[1]);
+        StorageManager.StorageType to = parseStorageType(args[2]);
+        if (from == null || to == null) {
+            sender.sendMessage(color("&cUnknown storage type. Use json, sqlite or mysql."));
+            return;
+        }
+        if (from == to) {
+            sender.sendMessage(color("&cSource and target must be different."));
+            return;
+        }
+
+        if (storage.startMigration(from, to, sender)) {
+            sender.sendMessage(color("&aMigration started. &7Check progress with &f/" + label + " migrate status"));
+        } else {
+            sender.sendMessage(color("&cA storage migration is already running."));
+        }
+    }
+
+    private StorageManager.StorageType parseStorageType(String name) {
+        try {
+            return StorageManager.StorageType.valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     private void openInfoGUI(Player player) {
         Inventory inv = Bukkit.createInventory(null, 27, color("&6&lVera Practice"));
         
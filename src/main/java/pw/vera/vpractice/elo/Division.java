@@ -0,0 +1,36 @@
+package pw.vera.vpractice.elo;
+
+/**
+ * A rank badge given by percentile on a ladder, e.g. "Diamond" for the top 5%.
+ * Loaded from elo.divisions in config.yml.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+public class Division {
+
+    private final String name;
+    private final String color;
+    private final double topPercent;
+
+    public Division(String name, String color, double topPercent) {
+        this.name = name;
+        this.color = color;
+        this.topPercent = topPercent;
+    }
+
+    public String getName() { return name; }
+    public String getColor() { return color; }
+
+    /**
+     * Share of rated players, counted from the top, that reaches this division.
+     */
+    public double getTopPercent() { return topPercent; }
+
+    /**
+     * Colored name for chat and scoreboards (untranslated '&' codes).
+     */
+    public String getDisplay() {
+        return color + name;
+    }
+}
@@ -1,29 +1,35 @@
 package pw.vera.vpractice.elo;
 
+import org.bukkit.Bukkit;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.scheduler.BukkitTask;
+import pw.vera.vpractice.kit.Ladder;
+import pw.vera.vpractice.queue.QueueManager;
+import pw.vera.vpractice.storage.StorageManager;
 import pw.vera.vpractice.vPractice;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Manages player ELO ratings with persistent storage
+ * Manages player ELO ratings with persistent storage.
+ * Changes are appended to a binary journal and periodically compacted
+ * into a snapshot; elo.yml is only read once to migrate old data.
  */
 public class EloManager {
 
     private final vPractice plugin;
     private File eloFile;
     private FileConfiguration eloConfig;
+    private final RatingJournal journal;
+    private BukkitTask flushTask;
+    private BukkitTask compactTask;
     
-    // Player ELO: uuid -> ladder -> elo
-    private final Map<UUID, Map<String, Integer>> playerElo = new ConcurrentHashMap<>();
-    
-    // Player stats: uuid -> ladder -> wins/losses
-    private final Map<UUID, Map<String, int[]>> playerStats = new ConcurrentHashMap<>();
+    // Player ELO, wins, losses and streaks, stored per ladder in primitive columns
+    private final RatingStore store = new RatingStore();
     
     // Default ELO
     public static final int DEFAULT_ELO = 1000;
@@ -35,29 +41,183 @@ public class EloManager {
     private static final int K_FACTOR_NORMAL = 25;  // Normal players
     private static final int K_FACTOR_VETERAN = 16; // Veterans (> 100 games)
     
+    // How long shutdown waits for an async compaction
+    private static final long COMPACTION_WAIT_MILLIS = 30000L;
+    
     // Minimum ELO change
     private static final int MIN_CHANGE = 5;
     private static final int MAX_CHANGE = 50;
+    
+    // Percentile divisions, best first, and how many rated players a ladder needs before they apply
+    private volatile List<Division> divisions = Collections.emptyList();
+    private volatile int divisionMinPlayers;
 
     public EloManager(vPractice plugin) {
         this.plugin = plugin;
-        setupFiles();
-        loadElo();
+        this.journal = new RatingJournal(new File(plugin.getDataFolder(), "ratings"), plugin.getLogger());
+        
+        // Create columns in ladder id order so store column ids match Ladder.getId()
+        for (Ladder ladder : plugin.getKitManager().getLadders()) {
+            store.registerLadder(ladder.getName().toLowerCase());
+        }
+        loadRatings();
+        updateSettings();
+        store.setListener(new RatingStore.Listener() {
+            @Override
+            public void eloChanged(UUID uuid, String ladder, int oldElo, int newElo) {
+                journal.appendElo(uuid, ladder, newElo);
+                QueueManager queue = plugin.getQueueManager();
+                if (queue != null) {
+                    queue.updateElo(uuid, ladder, newElo);
+                }
+                mirror(uuid, ladder);
+            }
+
+            @Override
+            public void statsChanged(UUID uuid, String ladder, int wins, int losses, int winStreak, int bestStreak) {
+                journal.appendStats(uuid, ladder, wins, losses, winStreak, bestStreak);
+                mirror(uuid, ladder);
+            }
+        });
+        startJournalTasks();
+    }
+
+    /**
+     * Hand a changed ladder row to storage, which mirrors it into the SQL
+     * backends. Runs under the slot's stripe lock, so the row is consistent.
+     */
+    private void mirror(UUID uuid, String ladder) {
+        StorageManager storage = plugin.getStorageManager();
+        if (storage == null) return;
+        int id = store.ladderIdOf(ladder);
+        int elo = store.getElo(uuid, id);
+        storage.recordRating(uuid, ladder, elo != RatingStore.NONE ? elo : DEFAULT_ELO,
+            store.getWins(uuid, id), store.getLosses(uuid, id),
+            store.getWinStreak(uuid, id), store.getBestStreak(uuid, id));
     }
 
-    private void setupFiles() {
+    private void loadRatings() {
+        boolean migrate = journal.isEmpty();
+        try {
+            int replayed = journal.load(new RatingJournal.Sink() {
+                @Override
+                public void applyElo(UUID uuid, String ladder, int elo) {
+                    store.setElo(uuid, ladder, elo);
+                }
+
+                @Override
+                public void applyStats(UUID uuid, String ladder, int wins, int losses, int winStreak, int bestStreak) {
+                    store.setStats(uuid, ladder, wins, losses, winStreak, bestStreak);
+                }
+            });
+            if (replayed > 0) {
+                plugin.log("&7Replayed &f" + replayed + " &7rating journal entries");
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not load rating journal: " + e.getMessage());
+        }
+
+        // One-time import from the old YAML store
         eloFile = new File(plugin.getDataFolder(), "elo.yml");
-        if (!eloFile.exists()) {
+        if (migrate && eloFile.exists()) {
+            eloConfig = YamlConfiguration.loadConfiguration(eloFile);
+            loadElo();
+            compact();
+            plugin.log("&7Migrated elo.yml into the rating journal");
+        }
+
+        plugin.log("&7Loaded ELO data for &f" + store.size() + " &7players");
+    }
+
+    /**
+     * Re-read division settings (called again on /practice reload).
+     */
+    public void updateSettings() {
+        FileConfiguration config = plugin.getConfig();
+        divisionMinPlayers = config.getInt("elo.division-min-players", 10);
+        
+        List<Division> loaded = new ArrayList<>();
+        ConfigurationSection section = config.getConfigurationSection("elo.divisions");
+        if (section != null) {
+            for (String name : section.getKeys(false)) {
+                loaded.add(new Division(name, section.getString(name + ".color", "&7"),
+                    section.getDouble(name + ".top", 100.0)));
+            }
+        }
+        loaded.sort(Comparator.comparingDouble(Division::getTopPercent));
+        divisions = Collections.unmodifiableList(loaded);
+    }
+
+    private void startJournalTasks() {
+        long compactTicks = plugin.getConfig().getLong("elo.journal.compact-interval", 10L) * 60L * 20L;
+
+        // Push buffered journal records to disk every second
+        flushTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, journal::flush, 20L, 20L);
+
+        if (compactTicks > 0) {
+            // Snapshot on the main thread, write off it
+            compactTask = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+                if (journal.getAppendedSinceCompact() > 0) {
+                    Runnable write = snapshotForSave();
+                    if (write != null) {
+                        Bukkit.getScheduler().runTaskAsynchronously(plugin, write);
+                    }
+                }
+            }, compactTicks, compactTicks);
+        }
+    }
+
+    /**
+     * Compact on the calling thread.
+     *
+     * @return false if nothing was written (a compaction was already in flight, or it failed)
+     */
+    private boolean compact() {
+        try {
+            RatingStore.Snapshot snapshot = journal.beginCompaction(store);
+            if (snapshot == null) return false;
+            journal.finishCompaction(snapshot);
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Rating journal compaction failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Rotate the journal and copy all ratings at one consistent point.
+     * Call on the main thread; the returned task writes the snapshot file
+     * and may run on any thread.
+     *
+     * @return the write task, or null if a compaction is already in flight
+     *         (later changes stay in the journal until the next one)
+     */
+    public Runnable snapshotForSave() {
+        RatingStore.Snapshot snapshot;
+        try {
+            snapshot = journal.beginCompaction(store);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Rating journal rotation failed: " + e.getMessage());
+            return null;
+        }
+        if (snapshot == null) return null;
+        
+        return () -> {
+            long start = System.currentTimeMillis();
             try {
-                plugin.getDataFolder().mkdirs();
-                eloFile.createNewFile();
+                journal.finishCompaction(snapshot);
+                if (plugin.getConfig().getBoolean("debug.enabled", false)) {
+                    plugin.log("&7Compacted rating journal in &f" + (System.currentTimeMillis() - start) + "ms");
+                }
             } catch (IOException e) {
-                plugin.getLogger().severe("Could not create elo.yml!");
+                plugin.getLogger().severe("Rating journal compaction failed: " + e.getMessage());
             }
-        }
-        eloConfig = YamlConfiguration.loadConfiguration(eloFile);
+        };
     }
 
+    /**
+     * Import ratings from the legacy elo.yml file.
+     */
     private void loadElo() {
         ConfigurationSection players = eloConfig.getConfigurationSection("players");
         if (players == null) return;
@@ -71,57 +231,75 @@ public class EloManager {
                 // Load ELO
                 ConfigurationSection eloSection = playerSection.getConfigurationSection("elo");
                 if (eloSection != null) {
-                    Map<String, Integer> ladderElo = new ConcurrentHashMap<>();
                     for (String ladder : eloSection.getKeys(false)) {
-                        ladderElo.put(ladder.toLowerCase(), eloSection.getInt(ladder));
+                        store.setElo(uuid, ladder.toLowerCase(), eloSection.getInt(ladder));
                     }
-                    playerElo.put(uuid, ladderElo);
                 }
                 
                 // Load stats
                 ConfigurationSection statsSection = playerSection.getConfigurationSection("stats");
                 if (statsSection != null) {
-                    Map<String, int[]> ladderStats = new ConcurrentHashMap<>();
                     for (String ladder : statsSection.getKeys(false)) {
                         int wins = statsSection.getInt(ladder + ".wins", 0);
                         int losses = statsSection.getInt(ladder + ".losses", 0);
-                        ladderStats.put(ladder.toLowerCase(), new int[]{wins, losses});
+                        store.setStats(uuid, ladder.toLowerCase(), wins, losses, 0, 0);
                     }
-                    playerStats.put(uuid, ladderStats);
                 }
             } catch (IllegalArgumentException e) {
                 plugin.getLogger().warning("Invalid UUID in elo.yml: " + uuidStr);
             }
         }
-        
-        plugin.log("&7Loaded ELO data for &f" + playerElo.size() + " &7players");
+    }
+
+    /**
+     * Column id for a ladder name; -1 if nobody has data on it yet.
+     */
+    private int ladderId(String ladder) {
+        return store.ladderIdOf(ladder.toLowerCase());
     }
 
     public int getElo(UUID uuid, String ladder) {
-        Map<String, Integer> ladderElo = playerElo.get(uuid);
-        if (ladderElo == null) return DEFAULT_ELO;
-        return ladderElo.getOrDefault(ladder.toLowerCase(), DEFAULT_ELO);
+        return getElo(uuid, ladderId(ladder));
+    }
+
+    /**
+     * Ladder-id variant for hot paths (see {@link Ladder#getId()}).
+     */
+    public int getElo(UUID uuid, int ladderId) {
+        int elo = store.getElo(uuid, ladderId);
+        return elo != RatingStore.NONE ? elo : DEFAULT_ELO;
     }
 
     public void setElo(UUID uuid, String ladder, int elo) {
-        playerElo.computeIfAbsent(uuid, k -> new ConcurrentHashMap<>())
-                 .put(ladder.toLowerCase(), Math.max(0, elo));
+        setElo(uuid, store.registerLadder(ladder.toLowerCase()), elo);
+    }
+
+    public void setElo(UUID uuid, int ladderId, int elo) {
+        store.setElo(uuid, ladderId, Math.max(0, elo));
     }
 
     public void addElo(UUID uuid, String ladder, int amount) {
-        int current = getElo(uuid, ladder);
-        setElo(uuid, ladder, current + amount);
+        addElo(uuid, store.registerLadder(ladder.toLowerCase()), amount);
+    }
+
+    public void addElo(UUID uuid, int ladderId, int amount) {
+        int current = getElo(uuid, ladderId);
+        setElo(uuid, ladderId, current + amount);
     }
 
     public void removeElo(UUID uuid, String ladder, int amount) {
-        int current = getElo(uuid, ladder);
-        setElo(uuid, ladder, Math.max(100, current - amount)); // Minimum 100 ELO
+        removeElo(uuid, store.registerLadder(ladder.toLowerCase()), amount);
+    }
+
+    public void removeElo(UUID uuid, int ladderId, int amount) {
+        int current = getElo(uuid, ladderId);
+        setElo(uuid, ladderId, Math.max(100, current - amount)); // Minimum 100 ELO
     }
 
     /**
      * Get the K-factor for a player based on their games played
      */
-    private int getKFactor(UUID uuid, String ladder) {
+    private int getKFactor(UUID uuid, int ladder) {
         int totalGames = getWins(uuid, ladder) + getLosses(uuid, ladder);
         if (totalGames < 10) return K_FACTOR_NEW;
         if (totalGames > 100) return K_FACTOR_VETERAN;
@@ -133,6 +311,10 @@ public class EloManager {
      * Returns the amount of ELO the winner gains (loser loses same amount)
      */
     public int calculateEloChange(UUID winner, UUID loser, String ladder) {
+        return calculateEloChange(winner, loser, ladderId(ladder));
+    }
+
+    public int calculateEloChange(UUID winner, UUID loser, int ladder) {
         int winnerElo = getElo(winner, ladder);
         int loserElo = getElo(loser, ladder);
         
@@ -158,124 +340,227 @@ public class EloManager {
      * Get global ELO (average across all ladders)
      */
     public int getGlobalElo(UUID uuid) {
-        Map<String, Integer> ladderElo = playerElo.get(uuid);
-        if (ladderElo == null || ladderElo.isEmpty()) return DEFAULT_ELO;
+        int slot = store.slotOf(uuid);
+        if (slot < 0) return DEFAULT_ELO;
         
         int total = 0;
-        for (int elo : ladderElo.values()) {
-            total += elo;
+        int count = 0;
+        for (int id = 0, n = store.ladderCount(); id < n; id++) {
+            int elo = store.eloAt(id, slot);
+            if (elo != RatingStore.NONE) {
+                total += elo;
+                count++;
+            }
         }
-        return total / ladderElo.size();
+        return count > 0 ? total / count : DEFAULT_ELO;
     }
 
     /**
-     * Get player's rank for a ladder
+     * Get player's rank for a ladder (1 = highest ELO)
      */
     public int getRank(UUID uuid, String ladder) {
-        int playerEloValue = getElo(uuid, ladder);
-        int rank = 1;
-        
-        for (Map<String, Integer> ladderMap : playerElo.values()) {
-            Integer elo = ladderMap.get(ladder.toLowerCase());
-            if (elo != null && elo > playerEloValue) {
-                rank++;
+        return getRank(uuid, ladderId(ladder));
+    }
+
+    public int getRank(UUID uuid, int id) {
+        return getPlayersAbove(uuid, id) + 1;
+    }
+
+    /**
+     * Number of players rated strictly above this player on a ladder.
+     */
+    public int getPlayersAbove(UUID uuid, String ladder) {
+        return getPlayersAbove(uuid, ladderId(ladder));
+    }
+
+    public int getPlayersAbove(UUID uuid, int id) {
+        return store.countAbove(id, getElo(uuid, id));
+    }
+
+    /**
+     * Number of players with a rating on a ladder.
+     */
+    public int getRatedCount(String ladder) {
+        return store.ratedCount(ladderId(ladder));
+    }
+
+    // =========================================================================
+    // DISTRIBUTION
+    // =========================================================================
+
+    /**
+     * Share of rated players on a ladder at or above this player, in percent
+     * (1.0 = top 1%), or -1 if the player has no rating there.
+     */
+    public double getTopPercent(UUID uuid, int id) {
+        int rated = store.ratedCount(id);
+        if (rated == 0 || store.getElo(uuid, id) == RatingStore.NONE) return -1;
+        return (getPlayersAbove(uuid, id) + 1) * 100.0 / rated;
+    }
+
+    public double getTopPercent(UUID uuid, String ladder) {
+        return getTopPercent(uuid, ladderId(ladder));
+    }
+
+    /**
+     * Division for a player's standing on a ladder, or null if they are
+     * unrated or the ladder has too few rated players for percentiles to mean much.
+     */
+    public Division getDivision(UUID uuid, int id) {
+        if (store.ratedCount(id) < divisionMinPlayers) return null;
+        double top = getTopPercent(uuid, id);
+        if (top < 0) return null;
+        for (Division division : divisions) {
+            if (top <= division.getTopPercent()) {
+                return division;
             }
         }
-        
-        return rank;
+        return null;
+    }
+
+    public Division getDivision(UUID uuid, String ladder) {
+        return getDivision(uuid, ladderId(ladder));
+    }
+
+    /**
+     * "top 3%" style label for a percentile from {@link #getTopPercent}.
+     */
+    public static String formatTopPercent(double top) {
+        if (top < 1.0) {
+            return "top " + String.format("%.1f", Math.max(0.1, Math.ceil(top * 10.0) / 10.0)) + "%";
+        }
+        return "top " + (int) Math.ceil(top) + "%";
     }
 
     /**
-     * Get leaderboard for a ladder
+     * Get leaderboard for a ladder. Up to {@link RatingStore#TOP_SIZE} entries
+     * come from a list kept current as ratings change; the result is immutable.
      */
     public List<Map.Entry<UUID, Integer>> getLeaderboard(String ladder, int limit) {
-        List<Map.Entry<UUID, Integer>> entries = new ArrayList<>();
-        
-        for (Map.Entry<UUID, Map<String, Integer>> entry : playerElo.entrySet()) {
-            Integer elo = entry.getValue().get(ladder.toLowerCase());
-            if (elo != null) {
-                entries.add(new AbstractMap.SimpleEntry<>(entry.getKey(), elo));
-            }
+        return getLeaderboard(ladderId(ladder), limit);
+    }
+
+    public List<Map.Entry<UUID, Integer>> getLeaderboard(int id, int limit) {
+        if (id < 0 || id >= store.ladderCount()) return Collections.emptyList();
+        if (limit <= RatingStore.TOP_SIZE) {
+            return store.top(id, limit);
         }
         
-        // Sort by ELO descending
-        entries.sort((a, b) -> b.getValue().compareTo(a.getValue()));
-        
-        // Limit results
-        if (entries.size() > limit) {
-            return entries.subList(0, limit);
+        List<Map.Entry<UUID, Integer>> entries = new ArrayList<>();
+        for (int slot = 0, n = store.size(); slot < n; slot++) {
+            int elo = store.eloAt(id, slot);
+            if (elo != RatingStore.NONE) {
+                entries.add(new AbstractMap.SimpleEntry<>(store.playerAt(slot), elo));
+            }
         }
-        return entries;
+        return sortAndLimit(entries, limit);
     }
 
     /**
-     * Get global leaderboard
+     * Get global leaderboard (average ELO across the ladders each player is rated on)
      */
     public List<Map.Entry<UUID, Integer>> getGlobalLeaderboard(int limit) {
-        List<Map.Entry<UUID, Integer>> entries = new ArrayList<>();
-        
-        for (UUID uuid : playerElo.keySet()) {
-            entries.add(new AbstractMap.SimpleEntry<>(uuid, getGlobalElo(uuid)));
+        if (limit <= RatingStore.TOP_SIZE) {
+            return store.globalTop(limit);
         }
         
+        List<Map.Entry<UUID, Integer>> entries = new ArrayList<>();
+        for (int slot = 0, n = store.size(); slot < n; slot++) {
+            int elo = store.globalScore(slot);
+            if (elo != RatingStore.NONE) {
+                entries.add(new AbstractMap.SimpleEntry<>(store.playerAt(slot), elo));
+            }
+        }
+        return sortAndLimit(entries, limit);
+    }
+
+    private List<Map.Entry<UUID, Integer>> sortAndLimit(List<Map.Entry<UUID, Integer>> entries, int limit) {
+        // Sort by ELO descending
         entries.sort((a, b) -> b.getValue().compareTo(a.getValue()));
         
+        // Limit results
         if (entries.size() > limit) {
             return entries.subList(0, limit);
         }
         return entries;
     }
 
+    /**
+     * Fold the journal into a fresh snapshot. If a compaction is already in
+     * flight, changes stay in the (flushed) journal until the next one.
+     */
     public void saveAll() {
-        // Save all player data
-        for (Map.Entry<UUID, Map<String, Integer>> entry : playerElo.entrySet()) {
-            String uuid = entry.getKey().toString();
-            for (Map.Entry<String, Integer> ladderEntry : entry.getValue().entrySet()) {
-                eloConfig.set("players." + uuid + ".elo." + ladderEntry.getKey(), ladderEntry.getValue());
-            }
-        }
-        
-        for (Map.Entry<UUID, Map<String, int[]>> entry : playerStats.entrySet()) {
-            String uuid = entry.getKey().toString();
-            for (Map.Entry<String, int[]> ladderEntry : entry.getValue().entrySet()) {
-                int[] wl = ladderEntry.getValue();
-                eloConfig.set("players." + uuid + ".stats." + ladderEntry.getKey() + ".wins", wl[0]);
-                eloConfig.set("players." + uuid + ".stats." + ladderEntry.getKey() + ".losses", wl[1]);
-            }
+        journal.flush();
+        if (compact()) {
+            plugin.log("&7Saved ELO data for &f" + store.size() + " &7players");
+        } else {
+            plugin.log("&7ELO changes flushed to the rating journal &8(snapshot not written)");
         }
-        
+    }
+
+    public void shutdown() {
+        if (flushTask != null) flushTask.cancel();
+        if (compactTask != null) compactTask.cancel();
+
+        // An autosave may still be writing its snapshot; let it finish before the final one
         try {
-            eloConfig.save(eloFile);
-            plugin.log("&7Saved ELO data for &f" + playerElo.size() + " &7players");
-        } catch (IOException e) {
-            plugin.getLogger().severe("Could not save elo.yml!");
+            if (!journal.awaitCompaction(COMPACTION_WAIT_MILLIS)) {
+                plugin.getLogger().warning("Rating snapshot still being written after " +
+                    COMPACTION_WAIT_MILLIS + "ms; the journal keeps every change");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        saveAll();
+        journal.close();
     }
 
     public int getWins(UUID uuid, String ladder) {
-        Map<String, int[]> stats = playerStats.get(uuid);
-        if (stats == null) return 0;
-        int[] wl = stats.get(ladder.toLowerCase());
-        return wl != null ? wl[0] : 0;
+        return store.getWins(uuid, ladderId(ladder));
+    }
+
+    public int getWins(UUID uuid, int ladderId) {
+        return store.getWins(uuid, ladderId);
     }
 
     public int getLosses(UUID uuid, String ladder) {
-        Map<String, int[]> stats = playerStats.get(uuid);
-        if (stats == null) return 0;
-        int[] wl = stats.get(ladder.toLowerCase());
-        return wl != null ? wl[1] : 0;
+        return store.getLosses(uuid, ladderId(ladder));
+    }
+
+    public int getLosses(UUID uuid, int ladderId) {
+        return store.getLosses(uuid, ladderId);
+    }
+
+    public int getWinStreak(UUID uuid, String ladder) {
+        return store.getWinStreak(uuid, ladderId(ladder));
+    }
+
+    public int getWinStreak(UUID uuid, int ladderId) {
+        return store.getWinStreak(uuid, ladderId);
+    }
+
+    public int getBestStreak(UUID uuid, String ladder) {
+        return store.getBestStreak(uuid, ladderId(ladder));
+    }
+
+    public int getBestStreak(UUID uuid, int ladderId) {
+        return store.getBestStreak(uuid, ladderId);
     }
 
     public void addWin(UUID uuid, String ladder) {
-        Map<String, int[]> stats = playerStats.computeIfAbsent(uuid, k -> new ConcurrentHashMap<>());
-        int[] wl = stats.computeIfAbsent(ladder.toLowerCase(), k -> new int[2]);
-        wl[0]++;
+        store.addWin(uuid, store.registerLadder(ladder.toLowerCase()));
+    }
+
+    public void addWin(UUID uuid, int ladderId) {
+        store.addWin(uuid, ladderId);
     }
 
     public void addLoss(UUID uuid, String ladder) {
-        Map<String, int[]> stats = playerStats.computeIfAbsent(uuid, k -> new ConcurrentHashMap<>());
-        int[] wl = stats.computeIfAbsent(ladder.toLowerCase(), k -> new int[2]);
-        wl[1]++;
+        store.addLoss(uuid, store.registerLadder(ladder.toLowerCase()));
+    }
+
+    public void addLoss(UUID uuid, int ladderId) {
+        store.addLoss(uuid, ladderId);
     }
 
     public List<Map.Entry<UUID, Integer>> getLadderLeaderboard(String ladder, int limit) {
@@ -288,6 +573,10 @@ public class EloManager {
     public int getTotalGames(UUID uuid, String ladder) {
         return getWins(uuid, ladder) + getLosses(uuid, ladder);
     }
+
+    public int getTotalGames(UUID uuid, int ladderId) {
+        return getWins(uuid, ladderId) + getLosses(uuid, ladderId);
+    }
     
     /**
      * Get win rate as percentage
@@ -0,0 +1,473 @@
+package pw.vera.vpractice.elo;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Append-only binary journal with snapshot compaction for ELO and stats.
+ *
+ * Every change is appended as a small "set" record ending in a CRC32 of the
+ * record, so replay is idempotent and a torn or garbled tail is detected
+ * rather than applied. Compaction rotates the journal, writes the current
+ * in-memory state to a new snapshot, then drops the rotated journal.
+ * Startup is snapshot load plus replay.
+ *
+ * Files (in the given directory):
+ *   ratings.snapshot     - full state at the last compaction
+ *   ratings.journal      - changes since then
+ *   ratings.journal.old  - rotated journal, only present if a compaction was interrupted
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+public class RatingJournal {
+
+    /**
+     * Receives records during load.
+     */
+    public interface Sink {
+        void applyElo(UUID uuid, String ladder, int elo);
+        void applyStats(UUID uuid, String ladder, int wins, int losses, int winStreak, int bestStreak);
+    }
+
+    private static final int SNAPSHOT_MAGIC = 0x56505253; // "VPRS"
+    private static final int SNAPSHOT_VERSION = 2;
+
+    // Journals written before records carried a checksum
+    private static final byte OP_ELO_V1 = 1;
+    private static final byte OP_STATS_V1 = 2; // wins, losses
+    private static final byte OP_STATS_V2 = 3; // wins, losses, streak, best streak
+
+    // Same payloads as ELO_V1 and STATS_V2, followed by a CRC32 of the op byte and payload
+    private static final byte OP_ELO = 4;
+    private static final byte OP_STATS = 5;
+
+    private static final int FLAG_ELO = 1;
+    private static final int FLAG_STATS = 2;
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private final File rotatedFile;
+    private final Logger logger;
+
+    /** Guards the journal stream */
+    private final Object writeLock = new Object();
+    /** Set from beginCompaction until finishCompaction, which may run on another thread */
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+
+    private DataOutputStream journal;
+    private FileOutputStream journalFileStream;
+    private final CRC32 journalCrc = new CRC32();
+    private long appendedSinceCompact = 0;
+
+    public RatingJournal(File directory, Logger logger) {
+        directory.mkdirs();
+        this.snapshotFile = new File(directory, "ratings.snapshot");
+        this.journalFile = new File(directory, "ratings.journal");
+        this.rotatedFile = new File(directory, "ratings.journal.old");
+        this.logger = logger;
+    }
+
+    /**
+     * True if neither a snapshot nor a journal exists yet (first start, or migrating from elo.yml).
+     */
+    public boolean isEmpty() {
+        return !snapshotFile.exists() && !journalFile.exists() && !rotatedFile.exists();
+    }
+
+    // =========================================================================
+    // LOAD
+    // =========================================================================
+
+    /**
+     * Load the snapshot, replay any journals, and open the journal for appending.
+     *
+     * @return number of journal records replayed
+     */
+    public int load(Sink sink) throws IOException {
+        if (snapshotFile.exists()) {
+            readSnapshot(sink);
+        }
+
+        int replayed = 0;
+        if (rotatedFile.exists()) {
+            replayed += replay(rotatedFile, sink);
+        }
+        if (journalFile.exists()) {
+            replayed += replay(journalFile, sink);
+        }
+
+        openJournal();
+        appendedSinceCompact = replayed;
+        return replayed;
+    }
+
+    private void readSnapshot(Sink sink) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a rating snapshot: " + snapshotFile.getName());
+            }
+            int version = in.readInt();
+            if (version < 1 || version > SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+
+            int players = in.readInt();
+            for (int i = 0; i < players; i++) {
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                int ladders = in.readUnsignedShort();
+                for (int j = 0; j < ladders; j++) {
+                    String ladder = in.readUTF();
+                    int flags = in.readUnsignedByte();
+                    if ((flags & FLAG_ELO) != 0) {
+                        sink.applyElo(uuid, ladder, in.readInt());
+                    }
+                    if ((flags & FLAG_STATS) != 0) {
+                        int wins = in.readInt();
+                        int losses = in.readInt();
+                        if (version >= 2) {
+                            sink.applyStats(uuid, ladder, wins, losses, in.readInt(), in.readInt());
+                        } else {
+                            sink.applyStats(uuid, ladder, wins, losses, 0, 0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Replay a journal, stopping at the first torn record. The valid prefix
+     * is kept and any partial or garbled tail left by a crash is truncated.
+     * A record is only applied once it has been read in full and, for
+     * checksummed records, its CRC matches.
+     */
+    private int replay(File file, Sink sink) throws IOException {
+        int records = 0;
+        long validLength = 0;
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(new FileInputStream(file), 1 << 16), crc))) {
+            while (true) {
+                crc.reset();
+                int op = in.read();
+                if (op == -1) break;
+                if (op < OP_ELO_V1 || op > OP_STATS) {
+                    throw new TornRecordException("unknown record type " + op);
+                }
+
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                String ladder = in.readUTF();
+                int length = 1 + 16 + 2 + utfLength(ladder);
+                int[] values;
+                if (op == OP_ELO || op == OP_ELO_V1) {
+                    values = new int[]{in.readInt()};
+                } else if (op == OP_STATS_V1) {
+                    values = new int[]{in.readInt(), in.readInt(), 0, 0};
+                    length -= 8;
+                } else {
+                    values = new int[]{in.readInt(), in.readInt(), in.readInt(), in.readInt()};
+                }
+                length += values.length * 4;
+
+                if (op == OP_ELO || op == OP_STATS) {
+                    long expected = crc.getValue();
+                    if (in.readInt() != (int) expected) {
+                        throw new TornRecordException("checksum mismatch");
+                    }
+                    length += 4;
+                }
+
+                if (values.length == 1) {
+                    sink.applyElo(uuid, ladder, values[0]);
+                } else {
+                    sink.applyStats(uuid, ladder, values[0], values[1], values[2], values[3]);
+                }
+                validLength += length;
+                records++;
+            }
+        } catch (EOFException | UTFDataFormatException | TornRecordException e) {
+            logger.warning("Truncating torn tail of " + file.getName() + " after " + records + " records (" +
+                e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "") + ")");
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * A record that can't be what was written: unknown type or bad checksum.
+     */
+    private static final class TornRecordException extends IOException {
+        TornRecordException(String message) {
+            super(message);
+        }
+    }
+
+    private static int utfLength(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) length++;
+            else if (c > 0x07FF) length += 3;
+            else length += 2;
+        }
+        return length;
+    }
+
+    private void openJournal() throws IOException {
+        journalFileStream = new FileOutputStream(journalFile, true);
+        journal = new DataOutputStream(new CheckedOutputStream(
+            new BufferedOutputStream(journalFileStream, 1 << 14), journalCrc));
+    }
+
+    /**
+     * Close a record started after {@code journalCrc.reset()}. Must hold writeLock.
+     */
+    private void writeChecksum() throws IOException {
+        journal.writeInt((int) journalCrc.getValue());
+    }
+
+    // =========================================================================
+    // APPEND
+    // =========================================================================
+
+    public void appendElo(UUID uuid, String ladder, int elo) {
+        synchronized (writeLock) {
+            if (journal == null) return;
+            try {
+                journalCrc.reset();
+                journal.writeByte(OP_ELO);
+                journal.writeLong(uuid.getMostSignificantBits());
+                journal.writeLong(uuid.getLeastSignificantBits());
+                journal.writeUTF(ladder);
+                journal.writeInt(elo);
+                writeChecksum();
+                appendedSinceCompact++;
+            } catch (IOException e) {
+                logger.severe("Failed to journal ELO change: " + e.getMessage());
+            }
+        }
+    }
+
+    public void appendStats(UUID uuid, String ladder, int wins, int losses, int winStreak, int bestStreak) {
+        synchronized (writeLock) {
+            if (journal == null) return;
+            try {
+                journalCrc.reset();
+                journal.writeByte(OP_STATS);
+                journal.writeLong(uuid.getMostSignificantBits());
+                journal.writeLong(uuid.getLeastSignificantBits());
+                journal.writeUTF(ladder);
+                journal.writeInt(wins);
+                journal.writeInt(losses);
+                journal.writeInt(winStreak);
+                journal.writeInt(bestStreak);
+                writeChecksum();
+                appendedSinceCompact++;
+            } catch (IOException e) {
+                logger.severe("Failed to journal stats change: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Push buffered records to the OS. Called periodically off the main thread.
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            if (journal == null) return;
+            try {
+                journal.flush();
+            } catch (IOException e) {
+                logger.severe("Failed to flush rating journal: " + e.getMessage());
+            }
+        }
+    }
+
+    public long getAppendedSinceCompact() {
+        synchronized (writeLock) {
+            return appendedSinceCompact;
+        }
+    }
+
+    // =========================================================================
+    // COMPACTION
+    // =========================================================================
+
+    /**
+     * Fold the journal into a new snapshot on the calling thread.
+     */
+    public void compact(RatingStore store) throws IOException {
+        RatingStore.Snapshot snapshot = beginCompaction(store);
+        if (snapshot != null) {
+            finishCompaction(snapshot);
+        }
+    }
+
+    /**
+     * First, cheap half of a compaction: rotate the journal and copy the store
+     * at the same point, so the copy holds exactly what the rotated journal
+     * described. Changes after this land in the new journal.
+     *
+     * @return the copy to pass to {@link #finishCompaction}, or null if a
+     *         compaction is already in progress
+     */
+    public RatingStore.Snapshot beginCompaction(RatingStore store) throws IOException {
+        if (!compacting.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            rotate();
+            return store.snapshot();
+        } catch (IOException | RuntimeException e) {
+            endCompaction();
+            throw e;
+        }
+    }
+
+    /**
+     * Second half of a compaction: write the snapshot file and drop the
+     * rotated journal. Safe to run off the main thread.
+     */
+    public void finishCompaction(RatingStore.Snapshot snapshot) throws IOException {
+        try {
+            writeSnapshot(snapshot);
+            Files.deleteIfExists(rotatedFile.toPath());
+        } finally {
+            endCompaction();
+        }
+    }
+
+    private void endCompaction() {
+        synchronized (compacting) {
+            compacting.set(false);
+            compacting.notifyAll();
+        }
+    }
+
+    /**
+     * Wait for a compaction started elsewhere (e.g. the async autosave) to finish.
+     *
+     * @return false if one is still running after {@code timeoutMillis}
+     */
+    public boolean awaitCompaction(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (compacting) {
+            while (compacting.get()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return false;
+                compacting.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    private void rotate() throws IOException {
+        synchronized (writeLock) {
+            if (journal != null) {
+                // Sync before the rename: until the new snapshot is on disk, the
+                // rotated file is the only durable copy of these records
+                journal.flush();
+                journalFileStream.getFD().sync();
+                journal.close();
+                journal = null;
+            }
+
+            if (journalFile.exists()) {
+                if (rotatedFile.exists()) {
+                    // Previous compaction never finished; keep both sets of records
+                    try (OutputStream out = new FileOutputStream(rotatedFile, true)) {
+                        Files.copy(journalFile.toPath(), out);
+                    }
+                    Files.delete(journalFile.toPath());
+                } else {
+                    Files.move(journalFile.toPath(), rotatedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+
+            openJournal();
+            appendedSinceCompact = 0;
+        }
+    }
+
+    private void writeSnapshot(RatingStore.Snapshot store) throws IOException {
+        File temp = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp");
+
+        try (FileOutputStream fileOut = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+
+            int players = store.size();
+            int ladderCount = store.ladderCount();
+            out.writeInt(players);
+
+            int[] flags = new int[ladderCount];
+            for (int slot = 0; slot < players; slot++) {
+                int present = 0;
+                for (int id = 0; id < ladderCount; id++) {
+                    int f = 0;
+                    if (store.eloAt(id, slot) != RatingStore.NONE) f |= FLAG_ELO;
+                    if (store.winsAt(id, slot) != 0 || store.lossesAt(id, slot) != 0 || store.bestStreakAt(id, slot) != 0) {
+                        f |= FLAG_STATS;
+                    }
+                    flags[id] = f;
+                    if (f != 0) present++;
+                }
+
+                UUID uuid = store.playerAt(slot);
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+                out.writeShort(present);
+                for (int id = 0; id < ladderCount; id++) {
+                    if (flags[id] == 0) continue;
+                    out.writeUTF(store.ladderName(id));
+                    out.writeByte(flags[id]);
+                    if ((flags[id] & FLAG_ELO) != 0) {
+                        out.writeInt(store.eloAt(id, slot));
+                    }
+                    if ((flags[id] & FLAG_STATS) != 0) {
+                        out.writeInt(store.winsAt(id, slot));
+                        out.writeInt(store.lossesAt(id, slot));
+                        out.writeInt(store.winStreakAt(id, slot));
+                        out.writeInt(store.bestStreakAt(id, slot));
+                    }
+                }
+            }
+
+            out.flush();
+            fileOut.getFD().sync();
+        }
+
+        Files.move(temp.toPath(), snapshotFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Flush and close the journal. Appends after this are ignored.
+     */
+    public void close() {
+        synchronized (writeLock) {
+            if (journal == null) return;
+            try {
+                journal.flush();
+                journalFileStream.getFD().sync();
+                journal.close();
+            } catch (IOException e) {
+                logger.severe("Failed to close rating journal: " + e.getMessage());
+            }
+            journal = null;
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package pw.vera.vpractice.elo;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Dense, columnar in-memory store for ratings and stats.
+ *
+ * Each player gets a stable int slot; each ladder gets a column holding
+ * primitive int[] arrays (elo, wins, losses, win streak, best streak)
+ * indexed by slot. Reads are plain array loads with no boxing or inner
+ * maps; writes take one of a fixed set of stripe locks chosen by slot.
+ * Each ladder also keeps a {@link RankIndex} and a {@link TopList} so rank
+ * and leaderboard lookups don't scan; a further TopList tracks global ELO.
+ *
+ * Rough heap cost at 500k players and 5 ladders (64-bit, compressed oops):
+ *   Map<UUID, Map<String, Integer>> + Map<UUID, Map<String, int[]>>
+ *     ~2 outer nodes + 2 inner ConcurrentHashMaps + ~10 nodes/Integers/int[]
+ *     per player = ~1.4 KB/player = ~700 MB
+ *   RatingStore
+ *     1 slot-map node + Integer (~48 B) + 5 ladders x 5 ints (100 B)
+ *     = ~150 B/player = ~75 MB
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+public class RatingStore {
+
+    /** Marker for "no rating on this ladder" in the elo column */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    /** Players kept in each incrementally maintained top list */
+    public static final int TOP_SIZE = 100;
+
+    private static final int STRIPES = 64;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Notified after every change, while the slot's stripe lock is held,
+     * so listeners observe changes to one player in order.
+     */
+    public interface Listener {
+        void eloChanged(UUID uuid, String ladder, int oldElo, int newElo);
+        void statsChanged(UUID uuid, String ladder, int wins, int losses, int winStreak, int bestStreak);
+    }
+
+    private final Map<UUID, Integer> slots = new ConcurrentHashMap<>();
+    private final Map<String, Integer> ladderIds = new ConcurrentHashMap<>();
+    private volatile String[] ladderNames = new String[0];
+
+    private volatile UUID[] players = new UUID[INITIAL_CAPACITY];
+    private volatile Column[] columns = new Column[0];
+    private volatile RankIndex[] ranks = new RankIndex[0];
+    private volatile TopList[] tops = new TopList[0];
+    private final TopList globalTop;
+    private volatile int size = 0;
+    private int capacity = INITIAL_CAPACITY;
+
+    /** Writers hold the read side plus a stripe; growing holds the write side */
+    private final ReentrantReadWriteLock resizeLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final Object allocLock = new Object();
+
+    private volatile Listener listener;
+
+    public RatingStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        globalTop = new TopList(TOP_SIZE, new TopList.Scores() {
+            @Override public int size() { return size; }
+            @Override public int scoreAt(int slot) { return globalScore(slot); }
+            @Override public UUID playerAt(int slot) { return players[slot]; }
+        });
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // =========================================================================
+    // SLOTS & LADDERS
+    // =========================================================================
+
+    /**
+     * Slot for a player, or -1 if they have no data.
+     */
+    public int slotOf(UUID uuid) {
+        Integer slot = slots.get(uuid);
+        return slot != null ? slot : -1;
+    }
+
+    private int slotFor(UUID uuid) {
+        Integer slot = slots.get(uuid);
+        if (slot != null) return slot;
+        return slots.computeIfAbsent(uuid, this::allocate);
+    }
+
+    private int allocate(UUID uuid) {
+        synchronized (allocLock) {
+            int slot = size;
+            if (slot == capacity) {
+                grow();
+            }
+            players[slot] = uuid;
+            size = slot + 1;
+            return slot;
+        }
+    }
+
+    private void grow() {
+        resizeLock.writeLock().lock();
+        try {
+            int newCapacity = capacity * 2;
+            players = Arrays.copyOf(players, newCapacity);
+            Column[] grown = new Column[columns.length];
+            for (int i = 0; i < grown.length; i++) {
+                grown[i] = columns[i].copy(newCapacity);
+            }
+            columns = grown;
+            capacity = newCapacity;
+        } finally {
+            resizeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Column id for a ladder, or -1 if no one has data on it.
+     * The name must already be lowercase.
+     */
+    public int ladderIdOf(String ladder) {
+        Integer id = ladderIds.get(ladder);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Column id for a ladder, creating the column if needed.
+     * Registering ladders in KitManager order before any data is loaded
+     * makes column ids equal to {@code Ladder.getId()}.
+     */
+    public int registerLadder(String ladder) {
+        Integer id = ladderIds.get(ladder);
+        if (id != null) return id;
+        return ladderIds.computeIfAbsent(ladder, this::addColumn);
+    }
+
+    private int addColumn(String ladder) {
+        resizeLock.writeLock().lock();
+        try {
+            int id = columns.length;
+            Column[] grown = Arrays.copyOf(columns, id + 1);
+            grown[id] = new Column(capacity);
+            columns = grown;
+            RankIndex[] grownRanks = Arrays.copyOf(ranks, id + 1);
+            grownRanks[id] = new RankIndex();
+            ranks = grownRanks;
+            TopList[] grownTops = Arrays.copyOf(tops, id + 1);
+            grownTops[id] = new TopList(TOP_SIZE, new TopList.Scores() {
+                @Override public int size() { return size; }
+                @Override public int scoreAt(int slot) { return columns[id].elo[slot]; }
+                @Override public UUID playerAt(int slot) { return players[slot]; }
+            });
+            tops = grownTops;
+            String[] names = Arrays.copyOf(ladderNames, id + 1);
+            names[id] = ladder;
+            ladderNames = names;
+            return id;
+        } finally {
+            resizeLock.writeLock().unlock();
+        }
+    }
+
+    public int size() { return size; }
+    public int ladderCount() { return columns.length; }
+    public UUID playerAt(int slot) { return players[slot]; }
+    public String ladderName(int ladderId) { return ladderNames[ladderId]; }
+
+    // =========================================================================
+    // READS
+    // =========================================================================
+
+    /**
+     * Raw elo value, or {@link #NONE} if the player has no rating on the ladder.
+     */
+    public int getElo(UUID uuid, String ladder) {
+        return getElo(uuid, ladderIdOf(ladder));
+    }
+
+    public int getElo(UUID uuid, int ladderId) {
+        int slot = slotOf(uuid);
+        Column[] cols = columns;
+        if (slot < 0 || ladderId < 0 || ladderId >= cols.length) return NONE;
+        return cols[ladderId].elo[slot];
+    }
+
+    public int getWins(UUID uuid, String ladder) {
+        return getWins(uuid, ladderIdOf(ladder));
+    }
+
+    public int getWins(UUID uuid, int ladderId) {
+        int slot = slotOf(uuid);
+        Column[] cols = columns;
+        if (slot < 0 || ladderId < 0 || ladderId >= cols.length) return 0;
+        return cols[ladderId].wins[slot];
+    }
+
+    public int getLosses(UUID uuid, String ladder) {
+        return getLosses(uuid, ladderIdOf(ladder));
+    }
+
+    public int getLosses(UUID uuid, int ladderId) {
+        int slot = slotOf(uuid);
+        Column[] cols = columns;
+        if (slot < 0 || ladderId < 0 || ladderId >= cols.length) return 0;
+        return cols[ladderId].losses[slot];
+    }
+
+    public int getWinStreak(UUID uuid, String ladder) {
+        return getWinStreak(uuid, ladderIdOf(ladder));
+    }
+
+    public int getWinStreak(UUID uuid, int ladderId) {
+        int slot = slotOf(uuid);
+        Column[] cols = columns;
+        if (slot < 0 || ladderId < 0 || ladderId >= cols.length) return 0;
+        return cols[ladderId].streak[slot];
+    }
+
+    public int getBestStreak(UUID uuid, String ladder) {
+        return getBestStreak(uuid, ladderIdOf(ladder));
+    }
+
+    public int getBestStreak(UUID uuid, int ladderId) {
+        int slot = slotOf(uuid);
+        Column[] cols = columns;
+        if (slot < 0 || ladderId < 0 || ladderId >= cols.length) return 0;
+        return cols[ladderId].best[slot];
+    }
+
+    /**
+     * Number of players rated strictly above {@code elo} on a ladder. O(log range).
+     */
+    public int countAbove(int ladderId, int elo) {
+        RankIndex[] r = ranks;
+        if (ladderId < 0 || ladderId >= r.length) return 0;
+        return r[ladderId].countAbove(elo);
+    }
+
+    /**
+     * Number of players with a rating on a ladder.
+     */
+    public int ratedCount(int ladderId) {
+        RankIndex[] r = ranks;
+        if (ladderId < 0 || ladderId >= r.length) return 0;
+        return r[ladderId].size();
+    }
+
+    /**
+     * Highest rated players on a ladder, best first, as an immutable list.
+     * {@code limit} is capped at {@link #TOP_SIZE}.
+     */
+    public List<Map.Entry<UUID, Integer>> top(int ladderId, int limit) {
+        TopList[] t = tops;
+        if (ladderId < 0 || ladderId >= t.length) return Collections.emptyList();
+        return t[ladderId].top(limit);
+    }
+
+    /**
+     * Highest average rating across ladders, best first, as an immutable list.
+     * {@code limit} is capped at {@link #TOP_SIZE}.
+     */
+    public List<Map.Entry<UUID, Integer>> globalTop(int limit) {
+        return globalTop.top(limit);
+    }
+
+    /**
+     * Average of a player's ratings across ladders, or {@link #NONE} if unrated.
+     */
+    public int globalScore(int slot) {
+        Column[] cols = columns;
+        int total = 0;
+        int count = 0;
+        for (Column c : cols) {
+            int elo = c.elo[slot];
+            if (elo != NONE) {
+                total += elo;
+                count++;
+            }
+        }
+        return count > 0 ? total / count : NONE;
+    }
+
+    /** Slot/column accessors for bulk scans */
+    public int eloAt(int ladderId, int slot) { return columns[ladderId].elo[slot]; }
+    public int winsAt(int ladderId, int slot) { return columns[ladderId].wins[slot]; }
+    public int lossesAt(int ladderId, int slot) { return columns[ladderId].losses[slot]; }
+    public int winStreakAt(int ladderId, int slot) { return columns[ladderId].streak[slot]; }
+    public int bestStreakAt(int ladderId, int slot) { return columns[ladderId].best[slot]; }
+
+    // =========================================================================
+    // WRITES
+    // =========================================================================
+
+    public void setElo(UUID uuid, String ladder, int elo) {
+        setElo(uuid, registerLadder(ladder), elo);
+    }
+
+    public void setElo(UUID uuid, int ladderId, int elo) {
+        int slot = slotFor(uuid);
+        lock(slot);
+        try {
+            int[] column = columns[ladderId].elo;
+            int old = column[slot];
+            int oldGlobal = globalScore(slot);
+            column[slot] = elo;
+            ranks[ladderId].move(old, elo);
+            tops[ladderId].update(slot, old, elo);
+            globalTop.update(slot, oldGlobal, globalScore(slot));
+            Listener l = listener;
+            if (l != null) l.eloChanged(uuid, ladderNames[ladderId], old, elo);
+        } finally {
+            unlock(slot);
+        }
+    }
+
+    /**
+     * Overwrite all counters for a ladder (used when loading).
+     */
+    public void setStats(UUID uuid, String ladder, int wins, int losses, int winStreak, int bestStreak) {
+        int slot = slotFor(uuid);
+        int id = registerLadder(ladder);
+        lock(slot);
+        try {
+            Column c = columns[id];
+            c.wins[slot] = wins;
+            c.losses[slot] = losses;
+            c.streak[slot] = winStreak;
+            c.best[slot] = bestStreak;
+            fireStats(uuid, ladder, c, slot);
+        } finally {
+            unlock(slot);
+        }
+    }
+
+    public void addWin(UUID uuid, String ladder) {
+        addWin(uuid, registerLadder(ladder));
+    }
+
+    public void addWin(UUID uuid, int ladderId) {
+        int slot = slotFor(uuid);
+        lock(slot);
+        try {
+            Column c = columns[ladderId];
+            c.wins[slot]++;
+            int streak = ++c.streak[slot];
+            if (streak > c.best[slot]) {
+                c.best[slot] = streak;
+            }
+            fireStats(uuid, ladderNames[ladderId], c, slot);
+        } finally {
+            unlock(slot);
+        }
+    }
+
+    public void addLoss(UUID uuid, String ladder) {
+        addLoss(uuid, registerLadder(ladder));
+    }
+
+    public void addLoss(UUID uuid, int ladderId) {
+        int slot = slotFor(uuid);
+        lock(slot);
+        try {
+            Column c = columns[ladderId];
+            c.losses[slot]++;
+            c.streak[slot] = 0;
+            fireStats(uuid, ladderNames[ladderId], c, slot);
+        } finally {
+            unlock(slot);
+        }
+    }
+
+    private void fireStats(UUID uuid, String ladder, Column c, int slot) {
+        Listener l = listener;
+        if (l != null) {
+            l.statsChanged(uuid, ladder, c.wins[slot], c.losses[slot], c.streak[slot], c.best[slot]);
+        }
+    }
+
+    private void lock(int slot) {
+        resizeLock.readLock().lock();
+        stripes[slot & (STRIPES - 1)].lock();
+    }
+
+    private void unlock(int slot) {
+        stripes[slot & (STRIPES - 1)].unlock();
+        resizeLock.readLock().unlock();
+    }
+
+    // =========================================================================
+    // SNAPSHOTS
+    // =========================================================================
+
+    /**
+     * Copy every column at a single point in time. Writers are blocked only
+     * for the duration of the array copies; the copy is then safe to read
+     * from any thread while the live store keeps changing.
+     */
+    public Snapshot snapshot() {
+        resizeLock.writeLock().lock();
+        try {
+            int n = size;
+            Column[] cols = columns;
+            Column[] copy = new Column[cols.length];
+            for (int i = 0; i < cols.length; i++) {
+                copy[i] = cols[i].copy(n);
+            }
+            return new Snapshot(Arrays.copyOf(players, n), ladderNames.clone(), copy);
+        } finally {
+            resizeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Immutable point-in-time copy of the store, with the same bulk accessors.
+     */
+    public static final class Snapshot {
+        private final UUID[] players;
+        private final String[] ladderNames;
+        private final Column[] columns;
+
+        private Snapshot(UUID[] players, String[] ladderNames, Column[] columns) {
+            this.players = players;
+            this.ladderNames = ladderNames;
+            this.columns = columns;
+        }
+
+        public int size() { return players.length; }
+        public int ladderCount() { return columns.length; }
+        public UUID playerAt(int slot) { return players[slot]; }
+        public String ladderName(int ladderId) { return ladderNames[ladderId]; }
+        public int eloAt(int ladderId, int slot) { return columns[ladderId].elo[slot]; }
+        public int winsAt(int ladderId, int slot) { return columns[ladderId].wins[slot]; }
+        public int lossesAt(int ladderId, int slot) { return columns[ladderId].losses[slot]; }
+        public int winStreakAt(int ladderId, int slot) { return columns[ladderId].streak[slot]; }
+        public int bestStreakAt(int ladderId, int slot) { return columns[ladderId].best[slot]; }
+    }
+
+    // =========================================================================
+    // INNER CLASSES
+    // =========================================================================
+
+    private static final class Column {
+        final int[] elo;
+        final int[] wins;
+        final int[] losses;
+        final int[] streak;
+        final int[] best;
+
+        Column(int capacity) {
+            this(new int[capacity], new int[capacity], new int[capacity], new int[capacity], new int[capacity]);
+            Arrays.fill(elo, NONE);
+        }
+
+        private Column(int[] elo, int[] wins, int[] losses, int[] streak, int[] best) {
+            this.elo = elo;
+            this.wins = wins;
+            this.losses = losses;
+            this.streak = streak;
+            this.best = best;
+        }
+
+        Column copy(int capacity) {
+            int[] grownElo = Arrays.copyOf(elo, capacity);
+            if (capacity > elo.length) {
+                Arrays.fill(grownElo, elo.length, capacity, NONE);
+            }
+            return new Column(grownElo,
+                Arrays.copyOf(wins, capacity),
+                Arrays.copyOf(losses, capacity),
+                Arrays.copyOf(streak, capacity),
+                Arrays.copyOf(best, capacity));
+        }
+    }
+}
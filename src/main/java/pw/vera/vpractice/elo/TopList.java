@@ -0,0 +1,148 @@
+package pw.vera.vpractice.elo;
+
+import java.util.*;
+
+/**
+ * The highest-scoring players of one ranking (a ladder, or global ELO),
+ * kept up to date as scores change instead of sorting everyone on read.
+ *
+ * Holds the exact top M players for some M between {@code size} and
+ * {@code 2 * size}: a player entering above the lowest member is added
+ * (dropping the lowest when full), and a member falling below every other
+ * member while outsiders exist is dropped, since someone outside may now
+ * be higher. Only when M falls under {@code size} is the full list
+ * rebuilt from a scan, which random rating churn makes rare.
+ *
+ * Reads return an immutable list, rebuilt in O(size) only after a change.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+final class TopList {
+
+    /**
+     * Source of scores for rebuilding; {@link RatingStore#NONE} means unranked.
+     */
+    interface Scores {
+        int size();
+        int scoreAt(int slot);
+        UUID playerAt(int slot);
+    }
+
+    private final int size;
+    private final int capacity;
+    private final Scores scores;
+
+    // Ordered by (score, -slot); iterated descending so ties list the earlier slot first
+    private final TreeSet<Long> order = new TreeSet<>();
+    private final Map<Integer, Integer> members = new HashMap<>();
+    private int ranked = 0;
+
+    private volatile List<Map.Entry<UUID, Integer>> snapshot;
+
+    TopList(int size, Scores scores) {
+        this.size = size;
+        this.capacity = size * 2;
+        this.scores = scores;
+    }
+
+    /**
+     * Record a player's new score. {@code oldScore} is only used to keep
+     * the count of ranked players.
+     */
+    synchronized void update(int slot, int oldScore, int newScore) {
+        if (oldScore == RatingStore.NONE && newScore != RatingStore.NONE) ranked++;
+        if (oldScore != RatingStore.NONE && newScore == RatingStore.NONE) ranked--;
+
+        Integer current = members.remove(slot);
+        if (current != null) {
+            order.remove(key(current, slot));
+        }
+
+        if (newScore != RatingStore.NONE) {
+            // Everyone outside the list scores at most its lowest member
+            boolean outsiders = ranked > members.size() + 1;
+            if (!outsiders || (!order.isEmpty() && newScore >= score(order.first()))) {
+                members.put(slot, newScore);
+                order.add(key(newScore, slot));
+                if (members.size() > capacity) {
+                    Long dropped = order.pollFirst();
+                    members.remove(slot(dropped));
+                }
+            }
+        }
+
+        if (current != null || members.containsKey(slot)) {
+            snapshot = null;
+        }
+        if (members.size() < size && ranked > members.size()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Top {@code limit} players, best first. {@code limit} may not exceed the list size.
+     */
+    List<Map.Entry<UUID, Integer>> top(int limit) {
+        List<Map.Entry<UUID, Integer>> list = snapshot;
+        if (list == null) {
+            list = buildSnapshot();
+        }
+        return list.size() > limit ? list.subList(0, limit) : list;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private synchronized List<Map.Entry<UUID, Integer>> buildSnapshot() {
+        List<Map.Entry<UUID, Integer>> list = snapshot;
+        if (list != null) return list;
+
+        List<Map.Entry<UUID, Integer>> entries = new ArrayList<>(Math.min(size, order.size()));
+        for (Iterator<Long> it = order.descendingIterator(); it.hasNext() && entries.size() < size; ) {
+            long key = it.next();
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(scores.playerAt(slot(key)), score(key)));
+        }
+        list = Collections.unmodifiableList(entries);
+        snapshot = list;
+        return list;
+    }
+
+    /**
+     * Refill from a full scan, keeping the best {@code capacity} players.
+     */
+    private void rebuild() {
+        order.clear();
+        members.clear();
+        int count = 0;
+        for (int slot = 0, n = scores.size(); slot < n; slot++) {
+            int score = scores.scoreAt(slot);
+            if (score == RatingStore.NONE) continue;
+            count++;
+            if (order.size() < capacity || score > score(order.first())) {
+                order.add(key(score, slot));
+                if (order.size() > capacity) {
+                    order.pollFirst();
+                }
+            }
+        }
+        for (long key : order) {
+            members.put(slot(key), score(key));
+        }
+        ranked = count;
+        snapshot = null;
+    }
+
+    private static long key(int score, int slot) {
+        return ((long) score << 32) | (Integer.MAX_VALUE - slot);
+    }
+
+    private static int score(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int slot(long key) {
+        return Integer.MAX_VALUE - (int) key;
+    }
+}
@@ -9,7 +9,9 @@ import org.bukkit.potion.PotionType;
 import pw.vera.vpractice.vPractice;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Manages ladders (game modes) and player custom kits.
@@ -27,8 +29,11 @@ public class KitManager {
     /** Available ladders indexed by lowercase name */
     private final Map<String, Ladder> ladders = new LinkedHashMap<>();
     
-    /** Player custom kit layouts: UUID -> (ladder name -> kit contents) */
-    private final Map<UUID, Map<String, ItemStack[]>> playerKits = new ConcurrentHashMap<>();
+    /** Available ladders indexed by ladder id */
+    private Ladder[] laddersById = new Ladder[0];
+    
+    /** Player custom kit layouts: UUID -> kit contents indexed by ladder id */
+    private final Map<UUID, AtomicReferenceArray<ItemStack[]>> playerKits = new ConcurrentHashMap<>();
     
     /** Players currently editing a kit */
     private final Map<UUID, String> editingLadder = new ConcurrentHashMap<>();
@@ -36,7 +41,6 @@ public class KitManager {
     public KitManager(vPractice plugin) {
         this.plugin = plugin;
         initializeLadders();
-        loadPlayerKits();
     }
 
     /**
@@ -85,7 +89,7 @@ public class KitManager {
         kit[26] = speedPot.clone();
         kit[35] = speedPot.clone();
         
-        ladders.put("nodebuff", new Ladder(
+        register(new Ladder(
             "nodebuff", "&cNoDebuff", Material.POTION,
             kit, armor, true, true, false, false
         ));
@@ -103,7 +107,7 @@ public class KitManager {
         // Golden apples
         kit[1] = new ItemStack(Material.GOLDEN_APPLE, 64);
         
-        ladders.put("combo", new Ladder(
+        register(new Ladder(
             "combo", "&bCombo", Material.RAW_FISH,
             kit, armor, true, false, false, false
         ));
@@ -122,7 +126,7 @@ public class KitManager {
         kit[1] = new ItemStack(Material.GOLDEN_APPLE, 64);
         kit[2] = new ItemStack(Material.GOLDEN_APPLE, 64);
         
-        ladders.put("gapple", new Ladder(
+        register(new Ladder(
             "gapple", "&6Gapple", Material.GOLDEN_APPLE,
             kit, armor, true, false, false, false
         ));
@@ -130,7 +134,7 @@ public class KitManager {
 
     private void registerSumo() {
         // Empty kit - sumo is just knockback, no items
-        ladders.put("sumo", new Ladder(
+        register(new Ladder(
             "sumo", "&eSumo", Material.LEASH,
             new ItemStack[36], new ItemStack[4], true, false, false, true
         ));
@@ -163,12 +167,24 @@ public class KitManager {
         armor[1] = new ItemStack(Material.LEATHER_LEGGINGS);
         armor[0] = new ItemStack(Material.LEATHER_BOOTS);
         
-        ladders.put("archer", new Ladder(
+        register(new Ladder(
             "archer", "&2Archer", Material.BOW,
             kit, armor, true, false, false, false
         ));
     }
 
+    /**
+     * Add a ladder and assign it the next id.
+     * Ids are handed out in registration order and never reused.
+     */
+    private void register(Ladder ladder) {
+        int id = laddersById.length;
+        ladder.setId(id);
+        laddersById = Arrays.copyOf(laddersById, id + 1);
+        laddersById[id] = ladder;
+        ladders.put(ladder.getName().toLowerCase(), ladder);
+    }
+
     // =========================================================================
     // UTILITY METHODS
     // =========================================================================
@@ -203,8 +219,35 @@ public class KitManager {
         return armor;
     }
 
-    private void loadPlayerKits() {
-        // TODO: Load from database/config
+    /**
+     * Prefetch a player's saved layouts into memory (called on join),
+     * so applying a kit at match start never waits on storage.
+     */
+    public CompletableFuture<Void> prefetchPlayerKits(UUID uuid) {
+        layoutsFor(uuid);
+        return plugin.getStorageManager().loadKitsAsync(uuid).thenAccept(kits -> {
+            AtomicReferenceArray<ItemStack[]> layouts = playerKits.get(uuid);
+            if (layouts == null) return; // Player left before the load finished
+            for (Map.Entry<String, ItemStack[]> entry : kits.entrySet()) {
+                Ladder ladder = ladders.get(entry.getKey().toLowerCase());
+                if (ladder == null) continue;
+                // Don't clobber a layout the player edited while the query was in flight
+                layouts.compareAndSet(ladder.getId(), null, entry.getValue());
+            }
+        });
+    }
+
+    private AtomicReferenceArray<ItemStack[]> layoutsFor(UUID uuid) {
+        return playerKits.computeIfAbsent(uuid, k -> new AtomicReferenceArray<>(laddersById.length));
+    }
+
+    /**
+     * Drop a player's layouts from memory (called on quit).
+     * They are already persisted and are loaded again on the next join.
+     */
+    public void unloadPlayerKits(UUID uuid) {
+        playerKits.remove(uuid);
+        editingLadder.remove(uuid);
     }
 
     // =========================================================================
@@ -215,6 +258,21 @@ public class KitManager {
         return ladders.get(name.toLowerCase());
     }
 
+    /**
+     * Look up a ladder by id, or null if the id is out of range.
+     */
+    public Ladder getLadder(int id) {
+        Ladder[] byId = laddersById;
+        return id >= 0 && id < byId.length ? byId[id] : null;
+    }
+
+    /**
+     * Number of registered ladders; valid ids are 0 to count - 1.
+     */
+    public int getLadderCount() {
+        return laddersById.length;
+    }
+
     public Collection<Ladder> getLadders() {
         return Collections.unmodifiableCollection(ladders.values());
     }
@@ -228,21 +286,47 @@ public class KitManager {
      * Returns the player's custom kit if set, otherwise the default kit.
      */
     public ItemStack[] getPlayerKit(UUID uuid, String ladder) {
-        Map<String, ItemStack[]> kits = playerKits.get(uuid);
-        if (kits != null && kits.containsKey(ladder.toLowerCase())) {
-            return kits.get(ladder.toLowerCase()).clone();
+        Ladder l = ladders.get(ladder.toLowerCase());
+        return l != null ? getPlayerKit(uuid, l.getId()) : new ItemStack[36];
+    }
+
+    public ItemStack[] getPlayerKit(UUID uuid, int ladderId) {
+        AtomicReferenceArray<ItemStack[]> kits = playerKits.get(uuid);
+        if (kits != null && ladderId >= 0 && ladderId < kits.length()) {
+            ItemStack[] kit = kits.get(ladderId);
+            if (kit != null) {
+                return kit.clone();
+            }
         }
         
-        Ladder l = ladders.get(ladder.toLowerCase());
-        return l != null ? l.getDefaultKit().clone() : new ItemStack[36];
+        Ladder l = getLadder(ladderId);
+        return l != null ? l.getDefaultKit() : new ItemStack[36];
     }
 
     /**
      * Save a player's custom kit layout for a ladder.
+     * The layout is written to storage asynchronously if it changed.
      */
     public void savePlayerKit(UUID uuid, String ladder, ItemStack[] kit) {
-        playerKits.computeIfAbsent(uuid, k -> new HashMap<>())
-                  .put(ladder.toLowerCase(), kit.clone());
+        Ladder l = ladders.get(ladder.toLowerCase());
+        if (l != null) {
+            savePlayerKit(uuid, l.getId(), kit);
+        }
+    }
+
+    public void savePlayerKit(UUID uuid, int ladderId, ItemStack[] kit) {
+        Ladder ladder = getLadder(ladderId);
+        if (ladder == null) return;
+        
+        ItemStack[] layout = new ItemStack[kit.length];
+        for (int i = 0; i < kit.length; i++) {
+            layout[i] = kit[i] != null ? kit[i].clone() : null;
+        }
+        ItemStack[] previous = layoutsFor(uuid).getAndSet(ladderId, layout);
+        ItemStack[] current = previous != null ? previous : ladder.getDefaultKit();
+        if (Arrays.equals(current, layout)) return;
+        
+        plugin.getStorageManager().saveKitAsync(uuid, ladder.getName(), layout);
     }
 
     /**
@@ -252,7 +336,7 @@ public class KitManager {
         player.getInventory().clear();
         player.getInventory().setArmorContents(null);
         
-        ItemStack[] kit = getPlayerKit(player.getUniqueId(), ladder.getName());
+        ItemStack[] kit = getPlayerKit(player.getUniqueId(), ladder.getId());
         ItemStack[] armor = ladder.getDefaultArmor();
         
         player.getInventory().setContents(kit);
@@ -277,6 +361,7 @@ public class KitManager {
     }
 
     public void saveAll() {
-        // TODO: Persist player kits to database/config
+        // Layouts are written through to storage as they are saved;
+        // StorageManager flushes anything still pending on shutdown.
     }
 }
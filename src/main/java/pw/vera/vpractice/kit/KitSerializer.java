@@ -0,0 +1,155 @@
+package pw.vera.vpractice.kit;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Converts kit layouts to and from their stored forms.
+ *
+ * Layouts are stored in a compact binary form: a palette of the distinct
+ * stacks in the kit followed by one byte per slot pointing into it. A
+ * NoDebuff kit (34 identical potions) stores 4 stacks instead of 36.
+ * The Base64 form is the legacy vpractice_kits.kit_data format.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+public final class KitSerializer {
+
+    private static final int LAYOUT_VERSION = 1;
+    private static final int MAX_PALETTE = 255;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private KitSerializer() {
+    }
+
+    // =========================================================================
+    // BINARY LAYOUTS
+    // =========================================================================
+
+    /**
+     * Encode a layout. Must be called on the main thread, like any ItemStack access.
+     */
+    public static byte[] toBytes(ItemStack[] items) throws IOException {
+        List<ItemStack> palette = new ArrayList<>();
+        byte[] slots = new byte[items.length];
+
+        for (int i = 0; i < items.length; i++) {
+            ItemStack item = items[i];
+            if (item == null || item.getType() == Material.AIR) continue;
+
+            int index = palette.indexOf(item);
+            if (index < 0) {
+                if (palette.size() == MAX_PALETTE) {
+                    throw new IOException("Kit has more than " + MAX_PALETTE + " distinct stacks");
+                }
+                palette.add(item);
+                index = palette.size() - 1;
+            }
+            slots[i] = (byte) (index + 1);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + palette.size() * 96);
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.writeByte(LAYOUT_VERSION);
+        header.writeShort(slots.length);
+        header.write(slots);
+        header.writeByte(palette.size());
+        header.flush();
+
+        try (BukkitObjectOutputStream out = new BukkitObjectOutputStream(bytes)) {
+            for (ItemStack item : palette) {
+                out.writeObject(item);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    public static ItemStack[] fromBytes(byte[] data) throws IOException {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+        DataInputStream header = new DataInputStream(bytes);
+
+        int version = header.readUnsignedByte();
+        if (version != LAYOUT_VERSION) {
+            throw new IOException("Unsupported layout version " + version);
+        }
+        byte[] slots = new byte[header.readUnsignedShort()];
+        header.readFully(slots);
+        ItemStack[] palette = new ItemStack[header.readUnsignedByte()];
+
+        try (BukkitObjectInputStream in = new BukkitObjectInputStream(bytes)) {
+            for (int i = 0; i < palette.length; i++) {
+                palette[i] = (ItemStack) in.readObject();
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to decode kit", e);
+        }
+
+        ItemStack[] items = new ItemStack[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            int index = slots[i] & 0xFF;
+            if (index == 0) continue;
+            if (index > palette.length) {
+                throw new IOException("Slot " + i + " points outside the palette");
+            }
+            items[i] = palette[index - 1].clone();
+        }
+        return items;
+    }
+
+    /**
+     * Content hash of an encoded layout (SHA-1, lowercase hex), used to store
+     * each distinct layout once no matter how many players use it.
+     */
+    public static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(data);
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    // =========================================================================
+    // LEGACY BASE64
+    // =========================================================================
+
+    public static String toBase64(ItemStack[] items) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BukkitObjectOutputStream out = new BukkitObjectOutputStream(bytes)) {
+            out.writeInt(items.length);
+            for (ItemStack item : items) {
+                out.writeObject(item);
+            }
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    public static ItemStack[] fromBase64(String data) throws IOException {
+        byte[] bytes = Base64.getDecoder().decode(data);
+        try (BukkitObjectInputStream in = new BukkitObjectInputStream(new ByteArrayInputStream(bytes))) {
+            ItemStack[] items = new ItemStack[in.readInt()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = (ItemStack) in.readObject();
+            }
+            return items;
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to decode kit", e);
+        }
+    }
+}
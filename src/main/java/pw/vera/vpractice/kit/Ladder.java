@@ -22,6 +22,7 @@ public class Ladder {
     private final boolean buildable;
     private final boolean sumo;
     private final int defaultElo;
+    private int id = -1;
 
     public Ladder(String name, String displayName, Material icon, 
                   ItemStack[] defaultKit, ItemStack[] defaultArmor,
@@ -38,6 +39,13 @@ public class Ladder {
         this.defaultElo = 1000;
     }
 
+    /**
+     * Small, stable index assigned by KitManager at registration.
+     * Use it for array lookups instead of hashing the name.
+     */
+    public int getId() { return id; }
+    void setId(int id) { this.id = id; }
+
     public String getName() { return name; }
     public String getDisplayName() { return displayName; }
     public Material getIcon() { return icon; }
@@ -26,10 +26,12 @@ public class EditorListener implements Listener {
         Player player = (Player) event.getPlayer();
         PlayerState state = plugin.getPlayerStateManager().getState(player.getUniqueId());
 
-        // Save kit when closing inventory in editor mode
+        // Save kit when closing inventory in editor mode (written to storage asynchronously)
         if (state == PlayerState.EDITING) {
-            // Could save the custom kit layout here
-            // For now, we don't persist custom kit layouts
+            String ladderName = plugin.getKitManager().getEditingLadder(player.getUniqueId());
+            if (ladderName != null) {
+                plugin.getKitManager().savePlayerKit(player.getUniqueId(), ladderName, player.getInventory().getContents());
+            }
         }
     }
 
@@ -56,6 +56,12 @@ public class PlayerListener implements Listener {
         // Set state immediately so scoreboard knows what to display
         plugin.getPlayerStateManager().setState(player.getUniqueId(), PlayerState.SPAWN);
 
+        // Prefetch saved kit layouts so match start stays in memory
+        plugin.getKitManager().prefetchPlayerKits(player.getUniqueId());
+        
+        // Keep the name index current for leaderboards
+        plugin.getStorageManager().getNameCache().update(player.getUniqueId(), player.getName());
+
         // Reset player
         Bukkit.getScheduler().runTaskLater(plugin, () -> {
             resetPlayer(player);
@@ -116,6 +122,8 @@ public class PlayerListener implements Listener {
         plugin.getPlayerStateManager().removeState(uuid);
         plugin.getScoreboardManager().removeScoreboard(player);
         plugin.getNametagManager().removeNametag(player);
+        plugin.getKitManager().unloadPlayerKits(uuid);
+        plugin.getStorageManager().unloadPlayer(uuid);
     }
 
     @EventHandler
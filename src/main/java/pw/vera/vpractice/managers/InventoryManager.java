@@ -284,8 +284,8 @@ public class InventoryManager {
                     Arrays.asList(
                             "&7Click to queue",
                             "",
-                            "&fIn Queue: &e" + plugin.getQueueManager().getQueueSize(ladder.getName(), false),
-                            "&fIn Fight: &c" + plugin.getMatchManager().getMatchesForLadder(ladder.getName())
+                            "&fIn Queue: &e" + plugin.getQueueManager().getQueueSize(ladder.getId(), false),
+                            "&fIn Fight: &c" + plugin.getMatchManager().getMatchesForLadder(ladder.getId())
                     ));
             inv.setItem(currentSlot++, item);
         }
@@ -306,14 +306,14 @@ public class InventoryManager {
         
         int currentSlot = startSlot;
         for (Ladder ladder : ladders) {
-            int elo = plugin.getEloManager().getElo(player.getUniqueId(), ladder.getName());
+            int elo = plugin.getEloManager().getElo(player.getUniqueId(), ladder.getId());
             ItemStack item = createItem(ladder.getIcon(), "&6" + ladder.getDisplayName(),
                     Arrays.asList(
                             "&7Click to queue",
                             "",
                             "&fYour ELO: &e" + elo,
-                            "&fIn Queue: &e" + plugin.getQueueManager().getQueueSize(ladder.getName(), true),
-                            "&fIn Fight: &c" + plugin.getMatchManager().getMatchesForLadder(ladder.getName())
+                            "&fIn Queue: &e" + plugin.getQueueManager().getQueueSize(ladder.getId(), true),
+                            "&fIn Fight: &c" + plugin.getMatchManager().getMatchesForLadder(ladder.getId())
                     ));
             inv.setItem(currentSlot++, item);
         }
@@ -207,21 +207,25 @@ public class RematchManager {
         requester.sendMessage(color("&a" + player.getName() + " accepted your rematch! Starting match..."));
         
         // Find an available arena
-        pw.vera.vpractice.arena.Arena arena = plugin.getArenaManager().getAvailableArena();
+        pw.vera.vpractice.arena.ArenaReservation arena = plugin.getArenaManager().reserveArena(ladder.isSumo());
         if (arena == null) {
             player.sendMessage(color("&cNo arenas available! Please wait..."));
             requester.sendMessage(color("&cNo arenas available! Please wait..."));
             return;
         }
         
-        // Create match
-        plugin.getMatchManager().createMatch(
+        // Create match; the arena is handed back if it can't start
+        Match match = plugin.getMatchManager().createMatch(
             ladder,
             arena,
             request.ranked,
             Collections.singletonList(requester.getUniqueId()),
             Collections.singletonList(player.getUniqueId())
         );
+        if (match == null) {
+            player.sendMessage(color("&cFailed to start the rematch!"));
+            requester.sendMessage(color("&cFailed to start the rematch!"));
+        }
     }
 
     /**
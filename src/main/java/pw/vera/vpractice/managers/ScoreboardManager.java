@@ -5,6 +5,7 @@ import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.scoreboard.*;
+import pw.vera.vpractice.elo.Division;
 import pw.vera.vpractice.game.PlayerState;
 import pw.vera.vpractice.match.Match;
 import pw.vera.vpractice.match.MatchState;
@@ -178,10 +179,8 @@ public class ScoreboardManager {
         
         QueueManager.QueueEntry entry = plugin.getQueueManager().getQueueEntry(player.getUniqueId());
         String ladderDisplay = "Unknown";
-        String ladderName = null;
         if (entry != null) {
-            ladderName = entry.ladder;
-            pw.vera.vpractice.kit.Ladder ladder = plugin.getKitManager().getLadder(entry.ladder);
+            pw.vera.vpractice.kit.Ladder ladder = plugin.getKitManager().getLadder(entry.ladderId);
             ladderDisplay = ladder != null ? ChatColor.stripColor(colorize(ladder.getDisplayName())) : entry.ladder;
         }
         String type = entry != null && entry.ranked ? "&6Ranked" : "&aUnranked";
@@ -192,9 +191,13 @@ public class ScoreboardManager {
         lines.add("&fLadder: &e" + ladderDisplay);
         
         // Show ELO for ranked queue (above time)
-        if (entry != null && entry.ranked && ladderName != null) {
-            int elo = plugin.getEloManager().getElo(player.getUniqueId(), ladderName);
+        if (entry != null && entry.ranked) {
+            int elo = plugin.getEloManager().getElo(player.getUniqueId(), entry.ladderId);
             lines.add("&fELO: &e" + elo);
+            Division division = plugin.getEloManager().getDivision(player.getUniqueId(), entry.ladderId);
+            if (division != null) {
+                lines.add("&fDivision: " + division.getDisplay());
+            }
         }
         
         lines.add("&fTime: &f" + formatTime(waitTime));
@@ -306,8 +309,10 @@ public class ScoreboardManager {
             return getSpawnLines(player);
         }
         
-        String leaderName = Bukkit.getOfflinePlayer(party.getLeader()).getName();
-        if (leaderName == null) leaderName = "Unknown";
+        // Online leaders by their live name; the cache only covers ones who logged out
+        Player leader = Bukkit.getPlayer(party.getLeader());
+        String leaderName = leader != null ? leader.getName()
+            : plugin.getStorageManager().getNameCache().getName(party.getLeader(), "Unknown");
         boolean isLeader = party.getLeader().equals(player.getUniqueId());
         
         lines.add("&7&m--------------------");
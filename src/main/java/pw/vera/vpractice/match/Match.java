@@ -1,6 +1,7 @@
 package pw.vera.vpractice.match;
 
 import pw.vera.vpractice.arena.Arena;
+import pw.vera.vpractice.arena.ArenaReservation;
 import pw.vera.vpractice.kit.Ladder;
 
 import java.util.*;
@@ -19,6 +20,7 @@ public class Match {
     private final String id;
     private final Ladder ladder;
     private final Arena arena;
+    private final ArenaReservation arenaReservation;
     private final boolean ranked;
     private final long startTime;
     
@@ -42,11 +44,12 @@ public class Match {
     // CONSTRUCTOR
     // =========================================================================
 
-    public Match(String id, Ladder ladder, Arena arena, boolean ranked,
+    public Match(String id, Ladder ladder, ArenaReservation arenaReservation, boolean ranked,
                  List<UUID> teamA, List<UUID> teamB) {
         this.id = id;
         this.ladder = ladder;
-        this.arena = arena;
+        this.arena = arenaReservation.getArena();
+        this.arenaReservation = arenaReservation;
         this.ranked = ranked;
         this.teamA = new ArrayList<>(teamA);
         this.teamB = new ArrayList<>(teamB);
@@ -67,6 +70,7 @@ public class Match {
     public String getId() { return id; }
     public Ladder getLadder() { return ladder; }
     public Arena getArena() { return arena; }
+    public ArenaReservation getArenaReservation() { return arenaReservation; }
     public boolean isRanked() { return ranked; }
     public long getStartTime() { return startTime; }
     public List<UUID> getTeamA() { return teamA; }
@@ -12,6 +12,7 @@ import org.bukkit.Sound;
 import org.bukkit.potion.PotionEffectType;
 import org.bukkit.scheduler.BukkitTask;
 import pw.vera.vpractice.arena.Arena;
+import pw.vera.vpractice.arena.ArenaReservation;
 import pw.vera.vpractice.game.PlayerState;
 import pw.vera.vpractice.kit.Ladder;
 import pw.vera.vpractice.vPractice;
@@ -34,29 +35,67 @@ public class MatchManager {
     }
 
     /**
-     * Create and start a new match
+     * Create and start a new match in a reserved arena. The reservation is
+     * released if a player has gone offline (returns null) or if setup
+     * throws (the error is rethrown once the match is undone).
      */
-    public Match createMatch(Ladder ladder, Arena arena, boolean ranked,
+    public Match createMatch(Ladder ladder, ArenaReservation arena, boolean ranked,
                               List<UUID> teamA, List<UUID> teamB) {
-        String matchId = "match-" + (++matchCounter);
-        
-        Match match = new Match(matchId, ladder, arena, ranked, teamA, teamB);
-        matches.put(matchId, match);
-        
-        // Mark arena as in use
-        arena.setInUse(true, matchId);
-        
-        // Register players to this match
-        for (UUID uuid : match.getAllPlayers()) {
-            playerMatches.put(uuid, matchId);
+        // A match missing a player would hold the arena with nobody to finish it
+        for (List<UUID> team : Arrays.asList(teamA, teamB)) {
+            for (UUID uuid : team) {
+                if (Bukkit.getPlayer(uuid) == null) {
+                    plugin.getArenaManager().releaseArena(arena);
+                    return null;
+                }
+            }
         }
         
-        // Start the match
-        startMatch(match);
+        String matchId = "match-" + (++matchCounter);
+        Match match = null;
+        try {
+            match = new Match(matchId, ladder, arena, ranked, teamA, teamB);
+            matches.put(matchId, match);
+            
+            // Label the reserved arena with its match
+            arena.getArena().setCurrentMatchId(matchId);
+            
+            // Register players to this match
+            for (UUID uuid : match.getAllPlayers()) {
+                playerMatches.put(uuid, matchId);
+            }
+            
+            // Start the match
+            startMatch(match);
+        } catch (RuntimeException e) {
+            if (match != null) {
+                abortMatch(match);
+            } else {
+                plugin.getArenaManager().releaseArena(arena);
+            }
+            throw e;
+        }
         
         return match;
     }
 
+    /**
+     * Undo a match whose setup failed: unregister it, free its arena and
+     * send anyone already moved back to spawn.
+     */
+    private void abortMatch(Match match) {
+        match.setState(MatchState.FINISHED);
+        matches.remove(match.getId());
+        plugin.getArenaManager().releaseArena(match.getArenaReservation());
+        for (UUID uuid : match.getAllPlayers()) {
+            playerMatches.remove(uuid, match.getId());
+            Player player = Bukkit.getPlayer(uuid);
+            if (player != null) {
+                plugin.getSpawnManager().sendToSpawn(player);
+            }
+        }
+    }
+
     /**
      * Start a match with countdown
      */
@@ -119,14 +158,10 @@ public class MatchManager {
                 player.getInventory().clear();
                 player.getInventory().setArmorContents(new ItemStack[4]);
                 
-                // Apply kit
-                ItemStack[] kit = plugin.getKitManager().getPlayerKit(uuid, ladder.getName());
+                // Apply kit (layouts are prefetched on join - no storage access here)
+                ItemStack[] kit = plugin.getKitManager().getPlayerKit(uuid, ladder.getId());
                 player.getInventory().setContents(kit);
-                
-                Ladder l = plugin.getKitManager().getLadder(ladder.getName());
-                if (l != null) {
-                    player.getInventory().setArmorContents(l.getDefaultArmor());
-                }
+                player.getInventory().setArmorContents(ladder.getDefaultArmor());
                 
                 // Reset player
                 player.setHealth(20);
@@ -162,14 +197,10 @@ public class MatchManager {
                 player.getInventory().clear();
                 player.getInventory().setArmorContents(new ItemStack[4]);
                 
-                // Apply kit
-                ItemStack[] kit = plugin.getKitManager().getPlayerKit(uuid, ladder.getName());
+                // Apply kit (layouts are prefetched on join - no storage access here)
+                ItemStack[] kit = plugin.getKitManager().getPlayerKit(uuid, ladder.getId());
                 player.getInventory().setContents(kit);
-                
-                Ladder l = plugin.getKitManager().getLadder(ladder.getName());
-                if (l != null) {
-                    player.getInventory().setArmorContents(l.getDefaultArmor());
-                }
+                player.getInventory().setArmorContents(ladder.getDefaultArmor());
                 
                 // Reset player
                 player.setHealth(20);
@@ -275,25 +306,25 @@ public class MatchManager {
         int eloChange = 0;
         if (match.isRanked() && !winners.isEmpty() && !losers.isEmpty()) {
             eloChange = plugin.getEloManager().calculateEloChange(
-                winners.get(0), losers.get(0), match.getLadder().getName());
+                winners.get(0), losers.get(0), match.getLadder().getId());
             match.setEloChange(eloChange);
             
             // Apply ELO changes and record stats
             for (UUID uuid : winners) {
-                plugin.getEloManager().addElo(uuid, match.getLadder().getName(), eloChange);
-                plugin.getEloManager().addWin(uuid, match.getLadder().getName());
+                plugin.getEloManager().addElo(uuid, match.getLadder().getId(), eloChange);
+                plugin.getEloManager().addWin(uuid, match.getLadder().getId());
             }
             for (UUID uuid : losers) {
-                plugin.getEloManager().removeElo(uuid, match.getLadder().getName(), eloChange);
-                plugin.getEloManager().addLoss(uuid, match.getLadder().getName());
+                plugin.getEloManager().removeElo(uuid, match.getLadder().getId(), eloChange);
+                plugin.getEloManager().addLoss(uuid, match.getLadder().getId());
             }
         } else {
             // Unranked - still record stats
             for (UUID uuid : winners) {
-                plugin.getEloManager().addWin(uuid, match.getLadder().getName());
+                plugin.getEloManager().addWin(uuid, match.getLadder().getId());
             }
             for (UUID uuid : losers) {
-                plugin.getEloManager().addLoss(uuid, match.getLadder().getName());
+                plugin.getEloManager().addLoss(uuid, match.getLadder().getId());
             }
         }
         
@@ -303,16 +334,14 @@ public class MatchManager {
         
         // Winner info
         for (UUID uuid : winners) {
-            String name = Bukkit.getOfflinePlayer(uuid).getName();
-            if (name == null) name = "Unknown";
+            String name = getResultName(uuid);
             String eloStr = match.isRanked() ? " &7(&a+" + eloChange + " ELO&7)" : "";
             broadcast(match, "&aWinner: &f" + name + eloStr);
         }
         
         // Loser info
         for (UUID uuid : losers) {
-            String name = Bukkit.getOfflinePlayer(uuid).getName();
-            if (name == null) name = "Unknown";
+            String name = getResultName(uuid);
             String eloStr = match.isRanked() ? " &7(&c-" + eloChange + " ELO&7)" : "";
             broadcast(match, "&cLoser: &f" + name + eloStr);
         }
@@ -357,7 +386,7 @@ public class MatchManager {
         match.setState(MatchState.FINISHED);
         
         // Free arena
-        match.getArena().setInUse(false, null);
+        plugin.getArenaManager().releaseArena(match.getArenaReservation());
         
         // Reset party states for players in this match
         Set<pw.vera.vpractice.party.Party> partiesReset = new HashSet<>();
@@ -465,9 +494,14 @@ public class MatchManager {
     }
 
     public int getMatchesForLadder(String ladder) {
+        Ladder l = plugin.getKitManager().getLadder(ladder);
+        return l != null ? getMatchesForLadder(l.getId()) : 0;
+    }
+
+    public int getMatchesForLadder(int ladderId) {
         int count = 0;
         for (Match match : matches.values()) {
-            if (match.getLadder().getName().equalsIgnoreCase(ladder) && 
+            if (match.getLadder().getId() == ladderId && 
                 (match.getState() == MatchState.FIGHTING || match.getState() == MatchState.STARTING)) {
                 count++;
             }
@@ -480,7 +514,7 @@ public class MatchManager {
      */
     public Match createMatch(List<Player> teamA, List<Player> teamB, Ladder ladder, boolean ranked) {
         // Select arena based on ladder type (sumo needs sumo arena)
-        Arena arena = plugin.getArenaManager().getRandomAvailableArena(ladder.isSumo());
+        ArenaReservation arena = plugin.getArenaManager().reserveArena(ladder.isSumo());
         if (arena == null) return null;
         
         List<UUID> teamAUuids = new ArrayList<>();
@@ -531,6 +565,15 @@ public class MatchManager {
         }
     }
 
+    /**
+     * Live name for online players; the name cache only for ones who left.
+     */
+    private String getResultName(UUID uuid) {
+        Player player = Bukkit.getPlayer(uuid);
+        return player != null ? player.getName()
+            : plugin.getStorageManager().getNameCache().getName(uuid, "Unknown");
+    }
+
     private void broadcast(Match match, String message) {
         String formatted = colorize(message);
         Set<UUID> sentTo = new HashSet<>();
@@ -552,7 +595,7 @@ public class MatchManager {
     public void shutdown() {
         // End all matches immediately
         for (Match match : new ArrayList<>(matches.values())) {
-            match.getArena().setInUse(false, null);
+            plugin.getArenaManager().releaseArena(match.getArenaReservation());
             for (UUID uuid : match.getAllPlayers()) {
                 Player player = Bukkit.getPlayer(uuid);
                 if (player != null) {
@@ -3,6 +3,7 @@ package pw.vera.vpractice.match;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import pw.vera.vpractice.arena.Arena;
+import pw.vera.vpractice.arena.ArenaReservation;
 import pw.vera.vpractice.kit.Ladder;
 import pw.vera.vpractice.party.Party;
 
@@ -16,6 +17,7 @@ public class PartyFFAMatch {
     private final String id;
     private final Ladder ladder;
     private final Arena arena;
+    private final ArenaReservation arenaReservation;
     private final Party party;
     private final long startTime;
     
@@ -52,10 +54,11 @@ public class PartyFFAMatch {
         {-5, 12},    // Extended
     };
 
-    public PartyFFAMatch(String id, Ladder ladder, Arena arena, Party party, List<UUID> participants) {
+    public PartyFFAMatch(String id, Ladder ladder, ArenaReservation arenaReservation, Party party, List<UUID> participants) {
         this.id = id;
         this.ladder = ladder;
-        this.arena = arena;
+        this.arena = arenaReservation.getArena();
+        this.arenaReservation = arenaReservation;
         this.party = party;
         this.participants = new ArrayList<>(participants);
         this.alive = new HashSet<>(participants);
@@ -69,6 +72,7 @@ public class PartyFFAMatch {
     public String getId() { return id; }
     public Ladder getLadder() { return ladder; }
     public Arena getArena() { return arena; }
+    public ArenaReservation getArenaReservation() { return arenaReservation; }
     public Party getParty() { return party; }
     public long getStartTime() { return startTime; }
     public List<UUID> getParticipants() { return participants; }
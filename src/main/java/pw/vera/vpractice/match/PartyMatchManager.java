@@ -5,7 +5,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.scheduler.BukkitTask;
-import pw.vera.vpractice.arena.Arena;
+import pw.vera.vpractice.arena.ArenaReservation;
 import pw.vera.vpractice.game.PlayerState;
 import pw.vera.vpractice.kit.Ladder;
 import pw.vera.vpractice.party.Party;
@@ -33,7 +33,7 @@ public class PartyMatchManager {
      */
     public PartyFFAMatch createFFAMatch(Party party, Ladder ladder) {
         // Select arena based on ladder type (sumo needs sumo arena)
-        Arena arena = plugin.getArenaManager().getRandomAvailableArena(ladder.isSumo());
+        ArenaReservation arena = plugin.getArenaManager().reserveArena(ladder.isSumo());
         if (arena == null) {
             return null;
         }
@@ -48,7 +48,7 @@ public class PartyMatchManager {
         PartyFFAMatch match = new PartyFFAMatch(matchId, ladder, arena, party, participants);
         
         ffaMatches.put(matchId, match);
-        arena.setInUse(true, matchId);
+        arena.getArena().setCurrentMatchId(matchId);
 
         // Register players
         for (UUID uuid : participants) {
@@ -113,13 +113,9 @@ public class PartyMatchManager {
                 player.getInventory().clear();
                 player.getInventory().setArmorContents(new ItemStack[4]);
 
-                ItemStack[] kit = plugin.getKitManager().getPlayerKit(uuid, ladder.getName());
+                ItemStack[] kit = plugin.getKitManager().getPlayerKit(uuid, ladder.getId());
                 player.getInventory().setContents(kit);
-
-                Ladder l = plugin.getKitManager().getLadder(ladder.getName());
-                if (l != null) {
-                    player.getInventory().setArmorContents(l.getDefaultArmor());
-                }
+                player.getInventory().setArmorContents(ladder.getDefaultArmor());
 
                 // Reset player
                 player.setHealth(20);
@@ -223,7 +219,7 @@ public class PartyMatchManager {
 
     private void cleanupMatch(PartyFFAMatch match) {
         match.setState(MatchState.FINISHED);
-        match.getArena().setInUse(false, null);
+        plugin.getArenaManager().releaseArena(match.getArenaReservation());
 
         // Reset party state for the party that started this FFA
         pw.vera.vpractice.party.Party party = match.getParty();
@@ -312,7 +308,7 @@ public class PartyMatchManager {
 
     public void shutdown() {
         for (PartyFFAMatch match : new ArrayList<>(ffaMatches.values())) {
-            match.getArena().setInUse(false, null);
+            plugin.getArenaManager().releaseArena(match.getArenaReservation());
             for (UUID uuid : match.getParticipants()) {
                 Player player = Bukkit.getPlayer(uuid);
                 if (player != null) {
@@ -227,6 +227,7 @@ public class PartyManager {
         party.addMember(playerUuid);
         playerParties.put(playerUuid, leaderUuid);
         invites.remove(leaderUuid);
+        updateQueuedPartySize(party);
         
         // Give party items to member
         plugin.getInventoryManager().givePartyItems(player, false);
@@ -291,6 +292,8 @@ public class PartyManager {
         // Remove from party
         party.removeMember(playerUuid);
         playerParties.remove(playerUuid);
+        plugin.getQueueManager().updatePartySize(playerUuid, 1);
+        updateQueuedPartySize(party);
         
         // Reset state to SPAWN so items work again
         plugin.getPlayerStateManager().setState(playerUuid, pw.vera.vpractice.game.PlayerState.SPAWN);
@@ -338,6 +341,8 @@ public class PartyManager {
         
         party.removeMember(targetUuid);
         playerParties.remove(targetUuid);
+        plugin.getQueueManager().updatePartySize(targetUuid, 1);
+        updateQueuedPartySize(party);
         
         // Reset state to SPAWN so items work again
         plugin.getPlayerStateManager().setState(targetUuid, pw.vera.vpractice.game.PlayerState.SPAWN);
@@ -362,6 +367,7 @@ public class PartyManager {
         // Update visibility for all members before removing
         for (UUID member : allMembers) {
             playerParties.remove(member);
+            plugin.getQueueManager().updatePartySize(member, 1);
             Player player = Bukkit.getPlayer(member);
             if (player != null) {
                 // Reset state to SPAWN so items work again
@@ -407,6 +413,15 @@ public class PartyManager {
         return party != null && party.getLeader().equals(uuid);
     }
 
+    /**
+     * Keep the party size on any members' queue entries current.
+     */
+    private void updateQueuedPartySize(Party party) {
+        for (UUID member : party.getMembers()) {
+            plugin.getQueueManager().updatePartySize(member, party.getSize());
+        }
+    }
+
     private void broadcastToParty(Party party, String message) {
         String formatted = colorize(message);
         for (UUID member : party.getAllMembers()) {
@@ -440,6 +455,7 @@ public class PartyManager {
     public void addPlayer(Party party, UUID uuid) {
         party.addMember(uuid);
         playerParties.put(uuid, party.getLeader());
+        updateQueuedPartySize(party);
     }
 
     /**
@@ -448,6 +464,8 @@ public class PartyManager {
     public void removePlayer(Party party, UUID uuid) {
         party.removeMember(uuid);
         playerParties.remove(uuid);
+        plugin.getQueueManager().updatePartySize(uuid, 1);
+        updateQueuedPartySize(party);
         
         // Update visibility for removed player
         Player player = Bukkit.getPlayer(uuid);
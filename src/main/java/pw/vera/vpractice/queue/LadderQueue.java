@@ -0,0 +1,98 @@
+package pw.vera.vpractice.queue;
+
+import java.util.*;
+
+/**
+ * One ladder's queue (ranked or unranked) in joining order.
+ *
+ * Entries are linked to each other directly through their own
+ * {@code previous}/{@code next} fields and indexed by UUID, so joining,
+ * leaving by UUID and the size (read by every queued player's scoreboard)
+ * are all O(1). A ConcurrentLinkedQueue needs O(n) for the last two.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+final class LadderQueue {
+
+    private final Map<UUID, QueueManager.QueueEntry> index = new HashMap<>();
+    private QueueManager.QueueEntry head;
+    private QueueManager.QueueEntry tail;
+    private volatile int size = 0;
+
+    /**
+     * Append an entry. Returns false if the player is already in this queue.
+     */
+    synchronized boolean offer(QueueManager.QueueEntry entry) {
+        if (index.putIfAbsent(entry.uuid, entry) != null) return false;
+        entry.previous = tail;
+        entry.next = null;
+        if (tail != null) {
+            tail.next = entry;
+        } else {
+            head = entry;
+        }
+        tail = entry;
+        size++;
+        return true;
+    }
+
+    /**
+     * Unlink this exact entry, if it is still queued.
+     */
+    synchronized boolean remove(QueueManager.QueueEntry entry) {
+        if (index.get(entry.uuid) != entry) return false;
+        index.remove(entry.uuid);
+        unlink(entry);
+        return true;
+    }
+
+    /**
+     * Unlink a player's entry, returning it, or null if they aren't queued here.
+     */
+    synchronized QueueManager.QueueEntry remove(UUID uuid) {
+        QueueManager.QueueEntry entry = index.remove(uuid);
+        if (entry != null) {
+            unlink(entry);
+        }
+        return entry;
+    }
+
+    synchronized boolean contains(UUID uuid) {
+        return index.containsKey(uuid);
+    }
+
+    /**
+     * Entries in joining order, copied so they can be read without the lock.
+     */
+    synchronized List<QueueManager.QueueEntry> snapshot() {
+        List<QueueManager.QueueEntry> entries = new ArrayList<>(size);
+        for (QueueManager.QueueEntry entry = head; entry != null; entry = entry.next) {
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Number of queued players. Never blocks.
+     */
+    int size() {
+        return size;
+    }
+
+    private void unlink(QueueManager.QueueEntry entry) {
+        if (entry.previous != null) {
+            entry.previous.next = entry.next;
+        } else {
+            head = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        } else {
+            tail = entry.previous;
+        }
+        entry.previous = null;
+        entry.next = null;
+        size--;
+    }
+}
@@ -0,0 +1,148 @@
+package pw.vera.vpractice.queue;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Chooses who should play whom on its own thread, so the server thread
+ * only has to check and start the proposed matches.
+ *
+ * Every pass takes a snapshot of each queue's FIFO order, pairs players
+ * off it (ranked opponents are looked up in the live ELO index, skipping
+ * anyone already paired this pass) and publishes the result, replacing
+ * any batch the server thread hasn't taken yet.
+ * Nothing here touches Bukkit; proposals can be stale by the time they
+ * are committed, so {@link QueueManager} re-validates each one.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+final class Matchmaker {
+
+    /**
+     * Two queue entries proposed to play each other.
+     */
+    static final class Pairing {
+        final QueueManager.QueueEntry first;
+        final QueueManager.QueueEntry second;
+
+        Pairing(QueueManager.QueueEntry first, QueueManager.QueueEntry second) {
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    private final QueueManager queues;
+    private final Logger logger;
+    private final long intervalMillis;
+    private final AtomicReference<List<Pairing>> proposals = new AtomicReference<>();
+
+    private static final long STOP_TIMEOUT_MILLIS = 1000L;
+
+    private Thread thread;
+    private volatile boolean running = false;
+
+    Matchmaker(QueueManager queues, Logger logger, long intervalMillis) {
+        this.queues = queues;
+        this.logger = logger;
+        this.intervalMillis = Math.max(1L, intervalMillis);
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this::run, "vPractice-Matchmaker");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the thread and wait briefly for it to exit, so a reload doesn't
+     * leave it holding the old plugin instance.
+     */
+    void stop() {
+        running = false;
+        if (thread == null) return;
+        thread.interrupt();
+        try {
+            thread.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            logger.warning("Matchmaker thread did not stop within " + STOP_TIMEOUT_MILLIS + "ms");
+        }
+        thread = null;
+    }
+
+    /**
+     * Latest batch of pairings, or null if there is nothing new. Each batch is handed out once.
+     */
+    List<Pairing> takeProposals() {
+        return proposals.getAndSet(null);
+    }
+
+    // =========================================================================
+    // MATCHMAKER THREAD
+    // =========================================================================
+
+    private void run() {
+        while (running) {
+            try {
+                List<Pairing> batch = pairAll();
+                proposals.set(batch.isEmpty() ? null : batch);
+            } catch (RuntimeException e) {
+                logger.warning("Matchmaking pass failed: " + e.getMessage());
+            }
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    private List<Pairing> pairAll() {
+        List<Pairing> batch = new ArrayList<>();
+        int limit = queues.getMatchesPerTick();
+        long now = System.currentTimeMillis();
+        for (int id = 0; id < queues.getLadderSlots(); id++) {
+            List<QueueManager.QueueEntry> unranked = queues.snapshotQueue(id, false);
+            if (unranked != null) {
+                pairUnranked(unranked, limit, batch);
+            }
+            List<QueueManager.QueueEntry> ranked = queues.snapshotQueue(id, true);
+            if (ranked != null) {
+                pairRanked(ranked, queues.getRankedIndex(id), limit, now, batch);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * First come, first served.
+     */
+    private static void pairUnranked(List<QueueManager.QueueEntry> queue, int limit, List<Pairing> batch) {
+        for (int i = 0, made = 0; i + 1 < queue.size() && made < limit; i += 2, made++) {
+            batch.add(new Pairing(queue.get(i), queue.get(i + 1)));
+        }
+    }
+
+    /**
+     * Longest-waiting players pick first: each takes the closest-rated
+     * player still unpaired within its wait-time range.
+     */
+    private static void pairRanked(List<QueueManager.QueueEntry> queue, RankedQueueIndex index, int limit,
+                                   long now, List<Pairing> batch) {
+        Set<QueueManager.QueueEntry> taken = new HashSet<>();
+        for (QueueManager.QueueEntry seeker : queue) {
+            if (taken.size() >= limit * 2 || index.size() - taken.size() < 2) break;
+            if (taken.contains(seeker)) continue;
+            QueueManager.QueueEntry opponent = index.closest(seeker, QueueManager.getEloRange(seeker, now), taken);
+            if (opponent == null) continue;
+            taken.add(seeker);
+            taken.add(opponent);
+            batch.add(new Pairing(seeker, opponent));
+        }
+    }
+}
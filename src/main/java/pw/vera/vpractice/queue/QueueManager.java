@@ -4,14 +4,14 @@ import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitTask;
-import pw.vera.vpractice.arena.Arena;
+import pw.vera.vpractice.arena.ArenaReservation;
 import pw.vera.vpractice.game.PlayerState;
 import pw.vera.vpractice.kit.Ladder;
+import pw.vera.vpractice.party.Party;
 import pw.vera.vpractice.vPractice;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Manages ranked and unranked queues
@@ -20,20 +20,30 @@ public class QueueManager {
 
     private final vPractice plugin;
     
-    // Queues: ladder -> ranked -> queue
-    private final Map<String, ConcurrentLinkedQueue<QueueEntry>> unrankedQueues = new ConcurrentHashMap<>();
-    private final Map<String, ConcurrentLinkedQueue<QueueEntry>> rankedQueues = new ConcurrentHashMap<>();
+    // Queues indexed by ladder id (null where a ladder has no ranked mode)
+    private final LadderQueue[] unrankedQueues;
+    private final LadderQueue[] rankedQueues;
+    
+    // Ranked queues again, ordered by ELO for finding opponents
+    private final RankedQueueIndex[] rankedIndexes;
     
     // Player queue tracking
     private final Map<UUID, QueueEntry> playerQueues = new ConcurrentHashMap<>();
     
-    // Queue processing task
+    // Pairing runs on the matchmaker thread; queueTask starts the matches it proposes
+    private static final long MATCHMAKING_INTERVAL = 250L;
+    private Matchmaker matchmaker;
     private BukkitTask queueTask;
-    private int matchesPerTick = 5;
+    private BukkitTask pingTask;
+    private volatile int matchesPerTick = 5;
 
     public QueueManager(vPractice plugin) {
         this.plugin = plugin;
         this.matchesPerTick = plugin.getMatchesPerTick();
+        int ladders = plugin.getKitManager().getLadderCount();
+        this.unrankedQueues = new LadderQueue[ladders];
+        this.rankedQueues = new LadderQueue[ladders];
+        this.rankedIndexes = new RankedQueueIndex[ladders];
         initializeQueues();
         startQueueProcessor();
     }
@@ -44,115 +54,106 @@ public class QueueManager {
 
     private void initializeQueues() {
         for (Ladder ladder : plugin.getKitManager().getLadders()) {
-            unrankedQueues.put(ladder.getName(), new ConcurrentLinkedQueue<>());
+            unrankedQueues[ladder.getId()] = new LadderQueue();
             if (ladder.isRanked()) {
-                rankedQueues.put(ladder.getName(), new ConcurrentLinkedQueue<>());
+                rankedQueues[ladder.getId()] = new LadderQueue();
+                rankedIndexes[ladder.getId()] = new RankedQueueIndex();
             }
         }
     }
 
     private void startQueueProcessor() {
-        queueTask = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
-            // Process unranked queues
-            for (Map.Entry<String, ConcurrentLinkedQueue<QueueEntry>> entry : unrankedQueues.entrySet()) {
-                processQueue(entry.getKey(), entry.getValue(), false);
-            }
-            
-            // Process ranked queues
-            for (Map.Entry<String, ConcurrentLinkedQueue<QueueEntry>> entry : rankedQueues.entrySet()) {
-                processQueue(entry.getKey(), entry.getValue(), true);
-            }
-        }, 5L, 5L); // Every 0.25 seconds (improved throughput)
+        matchmaker = new Matchmaker(this, plugin.getLogger(), MATCHMAKING_INTERVAL);
+        matchmaker.start();
+        
+        // Pairs are chosen on the matchmaker thread; starting them has to happen here
+        queueTask = Bukkit.getScheduler().runTaskTimer(plugin, this::commitPairings, 5L, 5L); // Every 0.25 seconds
+        
+        // The server only measures ping on keep-alives (every 40 ticks), so refresh at that rate
+        pingTask = Bukkit.getScheduler().runTaskTimer(plugin, this::refreshPings, 40L, 40L);
     }
 
-    private void processQueue(String ladderName, ConcurrentLinkedQueue<QueueEntry> queue, boolean ranked) {
-        // optimization: handle multiple matches per tick, but limit to avoid lag
-        int matchesCreated = 0;
+    // =========================================================================
+    // MATCHMAKING
+    // =========================================================================
 
-        while (queue.size() >= 2 && matchesCreated < matchesPerTick) {
-            if (!tryCreateMatch(ladderName, queue, ranked)) {
-                break; // Stop if we can't create a match (e.g. no arenas)
-            }
-            matchesCreated++;
-        }
+    /**
+     * ELO distance a ranked player accepts, widening the longer they wait.
+     */
+    static int getEloRange(QueueEntry entry, long now) {
+        return 100 + (int) ((now - entry.queueTime) / 1000) * 10;
     }
 
-    private boolean tryCreateMatch(String ladderName, ConcurrentLinkedQueue<QueueEntry> queue, boolean ranked) {
-        // Get the ladder first to determine arena type
-        Ladder ladder = plugin.getKitManager().getLadder(ladderName);
-        if (ladder == null) return false;
-        
-        // Get available arena based on ladder type (sumo needs sumo arena)
-        Arena arena = plugin.getArenaManager().getRandomAvailableArena(ladder.isSumo());
-        if (arena == null) return false;
-        
-        // Get two players
-        QueueEntry entry1 = queue.poll();
-        if (entry1 == null) return false; // Safety check
+    int getMatchesPerTick() {
+        return matchesPerTick;
+    }
+
+    int getLadderSlots() {
+        return unrankedQueues.length;
+    }
+
+    /**
+     * Queue contents in joining order, or null if the ladder has no such queue.
+     */
+    List<QueueEntry> snapshotQueue(int ladderId, boolean ranked) {
+        LadderQueue queue = (ranked ? rankedQueues : unrankedQueues)[ladderId];
+        if (queue == null) return null;
+        return Collections.unmodifiableList(queue.snapshot());
+    }
+
+    /**
+     * Live ELO index of a ranked queue; each lookup holds its lock.
+     */
+    RankedQueueIndex getRankedIndex(int ladderId) {
+        return rankedIndexes[ladderId];
+    }
 
-        QueueEntry entry2 = null;
+    /**
+     * Start the matchmaker's latest proposals that still hold: both players
+     * still in the same queue and online, and a free arena for the ladder.
+     */
+    private void commitPairings() {
+        List<Matchmaker.Pairing> pairings = matchmaker.takeProposals();
+        if (pairings == null) return;
         
-        if (ranked) {
-            // For ranked, try to match similar ELO
-            int targetElo = plugin.getEloManager().getElo(entry1.uuid, ladderName);
-            int bestDiff = Integer.MAX_VALUE;
+        for (Matchmaker.Pairing pairing : pairings) {
+            QueueEntry entry1 = pairing.first;
+            QueueEntry entry2 = pairing.second;
+            if (playerQueues.get(entry1.uuid) != entry1 || playerQueues.get(entry2.uuid) != entry2) continue;
             
-            // Limit search depth for performance
-            int searchCount = 0;
-            int maxSearch = 50;
+            Player player1 = Bukkit.getPlayer(entry1.uuid);
+            Player player2 = Bukkit.getPlayer(entry2.uuid);
+            if (player1 == null || player2 == null) continue;
             
-            for (QueueEntry e : queue) {
-                if (++searchCount > maxSearch) break;
-
-                int elo = plugin.getEloManager().getElo(e.uuid, ladderName);
-                int diff = Math.abs(elo - targetElo);
-                
-                // Expand range based on wait time
-                int maxRange = 100 + (int) ((System.currentTimeMillis() - entry1.queueTime) / 1000) * 10;
-                
-                if (diff < bestDiff && diff <= maxRange) {
-                    bestDiff = diff;
-                    entry2 = e;
-                }
-            }
+            // Get available arena based on ladder type (sumo needs sumo arena)
+            Ladder ladder = plugin.getKitManager().getLadder(entry1.ladderId);
+            ArenaReservation arena = plugin.getArenaManager().reserveArena(ladder.isSumo());
+            if (arena == null) continue;
             
-            if (entry2 == null) {
-                // No good match, put entry1 back
-                queue.offer(entry1);
-                return false;
-            }
-            queue.remove(entry2);
-        } else {
-            entry2 = queue.poll();
-        }
-        
-        if (entry2 == null) {
-            // Should be handled above, but safety
-            queue.offer(entry1);
-            return false;
-        }
-        
-        // Remove from tracking
-        playerQueues.remove(entry1.uuid);
-        playerQueues.remove(entry2.uuid);
-        
-        // Create match (ladder already fetched above)
-        List<UUID> teamA = Collections.singletonList(entry1.uuid);
-        List<UUID> teamB = Collections.singletonList(entry2.uuid);
-        
-        plugin.getMatchManager().createMatch(ladder, arena, ranked, teamA, teamB);
-        
-        // Notify players
-        Player player1 = Bukkit.getPlayer(entry1.uuid);
-        Player player2 = Bukkit.getPlayer(entry2.uuid);
-        
-        if (player1 != null) {
-            player1.sendMessage(colorize("&aMatch found! &7Opponent: &f" + (player2 != null ? player2.getName() : "Unknown")));
+            dequeue(entry1);
+            dequeue(entry2);
+            
+            List<UUID> teamA = Collections.singletonList(entry1.uuid);
+            List<UUID> teamB = Collections.singletonList(entry2.uuid);
+            plugin.getMatchManager().createMatch(ladder, arena, entry1.ranked, teamA, teamB);
+            
+            player1.sendMessage(colorize("&aMatch found! &7Opponent: &f" + player2.getName()));
+            player2.sendMessage(colorize("&aMatch found! &7Opponent: &f" + player1.getName()));
         }
-        if (player2 != null) {
-            player2.sendMessage(colorize("&aMatch found! &7Opponent: &f" + (player1 != null ? player1.getName() : "Unknown")));
+    }
+
+    /**
+     * Drop an entry from tracking, its queue and (for ranked) the ELO index.
+     */
+    private void dequeue(QueueEntry entry) {
+        playerQueues.remove(entry.uuid);
+        LadderQueue queue = (entry.ranked ? rankedQueues : unrankedQueues)[entry.ladderId];
+        if (queue != null) {
+            queue.remove(entry);
+            if (entry.ranked) {
+                rankedIndexes[entry.ladderId].remove(entry);
+            }
         }
-        return true;
     }
 
     /**
@@ -184,13 +185,17 @@ public class QueueManager {
             return false;
         }
         
-        QueueEntry entry = new QueueEntry(uuid, ladderName, ranked);
+        Party party = plugin.getPartyManager().getParty(uuid);
+        QueueEntry entry = new QueueEntry(uuid, ladder, ranked,
+            plugin.getEloManager().getElo(uuid, ladder.getId()), getPing(player), party != null ? party.getSize() : 1);
         playerQueues.put(uuid, entry);
         
-        Map<String, ConcurrentLinkedQueue<QueueEntry>> queues = ranked ? rankedQueues : unrankedQueues;
-        ConcurrentLinkedQueue<QueueEntry> queue = queues.get(ladderName);
+        LadderQueue queue = (ranked ? rankedQueues : unrankedQueues)[ladder.getId()];
         if (queue != null) {
             queue.offer(entry);
+            if (ranked) {
+                rankedIndexes[ladder.getId()].add(entry);
+            }
         }
         
         // Update state
@@ -198,7 +203,7 @@ public class QueueManager {
         
         String type = ranked ? "&cRanked" : "&aUnranked";
         player.sendMessage(colorize("&aJoined " + type + " " + ladder.getDisplayName() + " &aqueue!"));
-        player.sendMessage(colorize("&7Players in queue: &f" + getQueueSize(ladderName, ranked)));
+        player.sendMessage(colorize("&7Players in queue: &f" + getQueueSize(ladder.getId(), ranked)));
         
         return true;
     }
@@ -207,14 +212,10 @@ public class QueueManager {
      * Remove player from queue
      */
     public void removeFromQueue(UUID uuid) {
-        QueueEntry entry = playerQueues.remove(uuid);
+        QueueEntry entry = playerQueues.get(uuid);
         if (entry == null) return;
         
-        Map<String, ConcurrentLinkedQueue<QueueEntry>> queues = entry.ranked ? rankedQueues : unrankedQueues;
-        ConcurrentLinkedQueue<QueueEntry> queue = queues.get(entry.ladder);
-        if (queue != null) {
-            queue.remove(entry);
-        }
+        dequeue(entry);
         
         plugin.getPlayerStateManager().setState(uuid, PlayerState.SPAWN);
         
@@ -224,6 +225,53 @@ public class QueueManager {
         }
     }
 
+    // =========================================================================
+    // ENTRY UPDATES
+    // =========================================================================
+
+    /**
+     * A player's rating changed; re-key their ranked entry if they are
+     * queued on that ladder.
+     */
+    public void updateElo(UUID uuid, String ladder, int elo) {
+        QueueEntry entry = playerQueues.get(uuid);
+        if (entry == null || !entry.ranked || !entry.ladder.equalsIgnoreCase(ladder) || entry.elo == elo) return;
+        
+        entry.elo = elo;
+        RankedQueueIndex index = rankedIndexes[entry.ladderId];
+        if (index != null) {
+            index.rekey(entry);
+        }
+    }
+
+    /**
+     * A player joined or left a party (1 when not in one).
+     */
+    public void updatePartySize(UUID uuid, int size) {
+        QueueEntry entry = playerQueues.get(uuid);
+        if (entry != null) {
+            entry.partySize = size;
+        }
+    }
+
+    private void refreshPings() {
+        for (QueueEntry entry : playerQueues.values()) {
+            Player player = Bukkit.getPlayer(entry.uuid);
+            if (player != null) {
+                entry.ping = getPing(player);
+            }
+        }
+    }
+
+    private int getPing(Player player) {
+        try {
+            Object handle = player.getClass().getMethod("getHandle").invoke(player);
+            return (int) handle.getClass().getField("ping").get(handle);
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
     public boolean isInQueue(UUID uuid) {
         return playerQueues.containsKey(uuid);
     }
@@ -233,8 +281,14 @@ public class QueueManager {
     }
 
     public int getQueueSize(String ladder, boolean ranked) {
-        Map<String, ConcurrentLinkedQueue<QueueEntry>> queues = ranked ? rankedQueues : unrankedQueues;
-        ConcurrentLinkedQueue<QueueEntry> queue = queues.get(ladder);
+        Ladder l = plugin.getKitManager().getLadder(ladder);
+        return l != null ? getQueueSize(l.getId(), ranked) : 0;
+    }
+
+    public int getQueueSize(int ladderId, boolean ranked) {
+        LadderQueue[] queues = ranked ? rankedQueues : unrankedQueues;
+        if (ladderId < 0 || ladderId >= queues.length) return 0;
+        LadderQueue queue = queues[ladderId];
         return queue != null ? queue.size() : 0;
     }
 
@@ -254,9 +308,15 @@ public class QueueManager {
     }
 
     public void shutdown() {
+        if (matchmaker != null) {
+            matchmaker.stop();
+        }
         if (queueTask != null) {
             queueTask.cancel();
         }
+        if (pingTask != null) {
+            pingTask.cancel();
+        }
     }
 
     private String colorize(String text) {
@@ -264,19 +324,33 @@ public class QueueManager {
     }
 
     /**
-     * Queue entry
+     * Queue entry. Rating, ping and party size are captured on joining and
+     * kept current by {@link #updateElo}, {@link #updatePartySize} and the
+     * ping refresh, so matchmaking reads plain fields only.
      */
     public static class QueueEntry {
         public final UUID uuid;
         public final String ladder;
+        public final int ladderId;
         public final boolean ranked;
         public final long queueTime;
+        public volatile int elo;
+        public volatile int ping;
+        public volatile int partySize;
+        
+        // Links within the owning LadderQueue, guarded by its lock
+        QueueEntry previous;
+        QueueEntry next;
 
-        public QueueEntry(UUID uuid, String ladder, boolean ranked) {
+        public QueueEntry(UUID uuid, Ladder ladder, boolean ranked, int elo, int ping, int partySize) {
             this.uuid = uuid;
-            this.ladder = ladder;
+            this.ladder = ladder.getName();
+            this.ladderId = ladder.getId();
             this.ranked = ranked;
             this.queueTime = System.currentTimeMillis();
+            this.elo = elo;
+            this.ping = ping;
+            this.partySize = partySize;
         }
     }
 }
@@ -0,0 +1,96 @@
+package pw.vera.vpractice.queue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Everyone in one ladder's ranked queue, ordered by ELO, so the closest
+ * opponent for a player is found with two neighbour lookups (O(log n))
+ * across the whole queue instead of a scan over its head.
+ *
+ * Keys pack the rating into the high 32 bits and an insertion sequence
+ * into the low 32, so players with the same rating stay distinct and the
+ * earlier one sorts first.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+final class RankedQueueIndex {
+
+    private final TreeMap<Long, QueueManager.QueueEntry> byElo = new TreeMap<>();
+    private final Map<QueueManager.QueueEntry, Long> keys = new HashMap<>();
+    private int sequence = 0;
+
+    /**
+     * Add an entry at its current {@code elo}, or move it there if it is already indexed.
+     */
+    synchronized void add(QueueManager.QueueEntry entry) {
+        long key = ((long) entry.elo << 32) | (sequence++ & 0xFFFFFFFFL);
+        Long previous = keys.put(entry, key);
+        if (previous != null) {
+            byElo.remove(previous);
+        }
+        byElo.put(key, entry);
+    }
+
+    /**
+     * Move an indexed entry to its current {@code elo}, keeping its place
+     * among players at the same rating. Entries no longer indexed (matched
+     * or dequeued meanwhile) are left out.
+     */
+    synchronized void rekey(QueueManager.QueueEntry entry) {
+        Long previous = keys.get(entry);
+        if (previous == null) return;
+        long key = ((long) entry.elo << 32) | (previous & 0xFFFFFFFFL);
+        byElo.remove(previous);
+        keys.put(entry, key);
+        byElo.put(key, entry);
+    }
+
+    synchronized void remove(QueueManager.QueueEntry entry) {
+        Long key = keys.remove(entry);
+        if (key != null) {
+            byElo.remove(key);
+        }
+    }
+
+    /**
+     * The queued player rated closest to {@code entry}, at most
+     * {@code maxRange} ELO away, or null if there is none. Players in
+     * {@code taken} are stepped over, so the walk costs one extra lookup
+     * per skipped neighbour on top of the O(log n) search.
+     */
+    synchronized QueueManager.QueueEntry closest(QueueManager.QueueEntry entry, int maxRange,
+                                                 Set<QueueManager.QueueEntry> taken) {
+        Long key = keys.get(entry);
+        if (key == null) return null;
+        int elo = elo(key);
+
+        Map.Entry<Long, QueueManager.QueueEntry> below = byElo.lowerEntry(key);
+        while (below != null && taken.contains(below.getValue())) {
+            below = byElo.lowerEntry(below.getKey());
+        }
+        Map.Entry<Long, QueueManager.QueueEntry> above = byElo.higherEntry(key);
+        while (above != null && taken.contains(above.getValue())) {
+            above = byElo.higherEntry(above.getKey());
+        }
+        long belowDiff = below != null ? (long) elo - elo(below.getKey()) : Long.MAX_VALUE;
+        long aboveDiff = above != null ? (long) elo(above.getKey()) - elo : Long.MAX_VALUE;
+
+        // Equal distance goes to the lower-rated player, who is also the earlier one at the same rating
+        if (belowDiff <= aboveDiff) {
+            return belowDiff <= maxRange ? below.getValue() : null;
+        }
+        return aboveDiff <= maxRange ? above.getValue() : null;
+    }
+
+    synchronized int size() {
+        return byElo.size();
+    }
+
+    private static int elo(long key) {
+        return (int) (key >> 32);
+    }
+}
@@ -0,0 +1,335 @@
+package pw.vera.vpractice.storage;
+
+import pw.vera.vpractice.vPractice;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Online conversion of the MySQL tables to the compact schema: BINARY(16)
+ * UUIDs and SMALLINT ladder ids from the vpractice_ladders lookup table.
+ *
+ * Rows are copied in primary-key chunks into *_compact tables while the
+ * server keeps running. Players written to during the copy are recorded and
+ * copied again at cutover, when the pool is briefly drained and the tables
+ * are swapped with one atomic RENAME TABLE. The old tables are kept as
+ * *_legacy. Every copy is an idempotent upsert, so an interrupted migration
+ * simply runs again on the next start.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+public class CompactSchemaMigration implements Runnable {
+
+    private static final String[] TABLES = {
+        "vpractice_players", "vpractice_elo", "vpractice_kits", "vpractice_settings", "vpractice_match_history"
+    };
+
+    private static final String UUID_BYTES = "UNHEX(REPLACE(%s, '-', ''))";
+
+    // Copy statements; %s is the WHERE condition on the source row s
+    private static final String COPY_PLAYERS =
+        "INSERT INTO vpractice_players_compact (uuid, username, last_seen, created_at) " +
+        "SELECT " + uuidBytes("s.uuid") + ", s.username, s.last_seen, s.created_at FROM vpractice_players s WHERE %s " +
+        "ON DUPLICATE KEY UPDATE username = VALUES(username), last_seen = VALUES(last_seen), created_at = VALUES(created_at)";
+    private static final String COPY_ELO =
+        "INSERT INTO vpractice_elo_compact (uuid, ladder, elo, wins, losses, win_streak, best_streak) " +
+        "SELECT " + uuidBytes("s.uuid") + ", l.id, s.elo, s.wins, s.losses, s.win_streak, s.best_streak " +
+        "FROM vpractice_elo s JOIN vpractice_ladders l ON l.name = s.ladder WHERE %s " +
+        "ON DUPLICATE KEY UPDATE elo = VALUES(elo), wins = VALUES(wins), losses = VALUES(losses), " +
+        "win_streak = VALUES(win_streak), best_streak = VALUES(best_streak)";
+    private static final String COPY_KITS =
+        "INSERT INTO vpractice_kits_compact (uuid, ladder, kit_data, layout_hash) " +
+        "SELECT " + uuidBytes("s.uuid") + ", l.id, s.kit_data, s.layout_hash " +
+        "FROM vpractice_kits s JOIN vpractice_ladders l ON l.name = s.ladder WHERE %s " +
+        "ON DUPLICATE KEY UPDATE kit_data = VALUES(kit_data), layout_hash = VALUES(layout_hash)";
+    private static final String COPY_SETTINGS =
+        "INSERT INTO vpractice_settings_compact (uuid, scoreboard_enabled, duel_requests, party_invites, " +
+        "spectator_visibility, ping_range) " +
+        "SELECT " + uuidBytes("s.uuid") + ", s.scoreboard_enabled, s.duel_requests, s.party_invites, " +
+        "s.spectator_visibility, s.ping_range FROM vpractice_settings s WHERE %s " +
+        "ON DUPLICATE KEY UPDATE scoreboard_enabled = VALUES(scoreboard_enabled), duel_requests = VALUES(duel_requests), " +
+        "party_invites = VALUES(party_invites), spectator_visibility = VALUES(spectator_visibility), " +
+        "ping_range = VALUES(ping_range)";
+    // History is append-only and keeps its ids, so re-copying a range is a no-op
+    private static final String COPY_HISTORY =
+        "INSERT IGNORE INTO vpractice_match_history_compact " +
+        "(id, match_id, winner_uuid, loser_uuid, ladder, ranked, elo_change, duration, timestamp) " +
+        "SELECT s.id, s.match_id, " + uuidBytes("s.winner_uuid") + ", " + uuidBytes("s.loser_uuid") + ", l.id, " +
+        "s.ranked, s.elo_change, s.duration, s.timestamp " +
+        "FROM vpractice_match_history s LEFT JOIN vpractice_ladders l ON l.name = s.ladder WHERE %s";
+
+    private static final long CUTOVER_TIMEOUT = 10000L;
+    private static final int TOUCHED_CHUNK = 500;
+
+    private final vPractice plugin;
+    private final StorageManager storage;
+    private final ConnectionPool pool;
+    private final WriteBehindQueue writeQueue;
+    private final int chunkSize;
+    private final long throttleMillis;
+
+    /** Players written to since the copy started */
+    private final Set<UUID> touched = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean cancelled = false;
+    private long rowsCopied = 0;
+    private long lastHistoryId = 0;
+
+    public CompactSchemaMigration(vPractice plugin, StorageManager storage, ConnectionPool pool,
+                                  WriteBehindQueue writeQueue, int chunkSize, long throttleMillis) {
+        this.plugin = plugin;
+        this.storage = storage;
+        this.pool = pool;
+        this.writeQueue = writeQueue;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.throttleMillis = Math.max(0L, throttleMillis);
+    }
+
+    /**
+     * Record that a player's rows changed in the old tables.
+     */
+    void touch(UUID uuid) {
+        touched.add(uuid);
+    }
+
+    /**
+     * Stop between chunks (plugin disabling). Nothing is swapped.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public void run() {
+        long start = System.currentTimeMillis();
+        plugin.log("&7Converting MySQL tables to the compact schema &8(chunks of " + chunkSize + ")");
+        try {
+            createTables();
+            try (Connection connection = pool.getConnection()) {
+                fillLadders(connection);
+            }
+
+            copyTable("vpractice_players", "uuid", "", COPY_PLAYERS);
+            copyTable("vpractice_elo", "id", 0, COPY_ELO);
+            copyTable("vpractice_kits", "id", 0, COPY_KITS);
+            copyTable("vpractice_settings", "uuid", "", COPY_SETTINGS);
+            lastHistoryId = ((Number) copyTable("vpractice_match_history", "id", 0, COPY_HISTORY)).longValue();
+
+            cutover();
+            plugin.log("&aMySQL tables converted to the compact schema &8(" + rowsCopied + " rows, " +
+                (System.currentTimeMillis() - start) / 1000L + "s)");
+        } catch (CancelledException e) {
+            plugin.log("&7Compact schema migration stopped; it will resume on next start");
+            storage.onSchemaMigrationFinished(null);
+        } catch (SQLException | InterruptedException e) {
+            plugin.getLogger().severe("Compact schema migration failed, staying on the current schema: " + e.getMessage());
+            storage.onSchemaMigrationFinished(null);
+        }
+    }
+
+    // =========================================================================
+    // COPY
+    // =========================================================================
+
+    private void createTables() throws SQLException {
+        String[] statements = {
+            "CREATE TABLE IF NOT EXISTS vpractice_ladders (" +
+                "id SMALLINT UNSIGNED AUTO_INCREMENT PRIMARY KEY," +
+                "name VARCHAR(32) NOT NULL," +
+                "UNIQUE KEY unique_name (name)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4",
+
+            "CREATE TABLE IF NOT EXISTS vpractice_players_compact (" +
+                "uuid BINARY(16) PRIMARY KEY," +
+                "username VARCHAR(16) NOT NULL," +
+                "last_seen BIGINT DEFAULT 0," +
+                "created_at BIGINT DEFAULT 0" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4",
+
+            // Clustered on (uuid, ladder) so a player's ratings are one range read
+            "CREATE TABLE IF NOT EXISTS vpractice_elo_compact (" +
+                "uuid BINARY(16) NOT NULL," +
+                "ladder SMALLINT UNSIGNED NOT NULL," +
+                "elo INT DEFAULT 1000," +
+                "wins INT DEFAULT 0," +
+                "losses INT DEFAULT 0," +
+                "win_streak INT DEFAULT 0," +
+                "best_streak INT DEFAULT 0," +
+                "PRIMARY KEY (uuid, ladder)," +
+                "INDEX idx_ladder_elo (ladder, elo)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4",
+
+            "CREATE TABLE IF NOT EXISTS vpractice_kits_compact (" +
+                "uuid BINARY(16) NOT NULL," +
+                "ladder SMALLINT UNSIGNED NOT NULL," +
+                "kit_data MEDIUMTEXT," +
+                "layout_hash CHAR(40) NULL," +
+                "PRIMARY KEY (uuid, ladder)," +
+                "INDEX idx_layout (layout_hash)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4",
+
+            "CREATE TABLE IF NOT EXISTS vpractice_settings_compact (" +
+                "uuid BINARY(16) PRIMARY KEY," +
+                "scoreboard_enabled BOOLEAN DEFAULT TRUE," +
+                "duel_requests BOOLEAN DEFAULT TRUE," +
+                "party_invites BOOLEAN DEFAULT TRUE," +
+                "spectator_visibility BOOLEAN DEFAULT TRUE," +
+                "ping_range VARCHAR(16) DEFAULT 'ALL'" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4",
+
+            "CREATE TABLE IF NOT EXISTS vpractice_match_history_compact (" +
+                "id INT AUTO_INCREMENT PRIMARY KEY," +
+                "match_id VARCHAR(64) NOT NULL," +
+                "winner_uuid BINARY(16)," +
+                "loser_uuid BINARY(16)," +
+                "ladder SMALLINT UNSIGNED," +
+                "ranked BOOLEAN DEFAULT FALSE," +
+                "elo_change INT DEFAULT 0," +
+                "duration BIGINT DEFAULT 0," +
+                "timestamp BIGINT DEFAULT 0," +
+                "INDEX idx_winner (winner_uuid, timestamp)," +
+                "INDEX idx_loser (loser_uuid, timestamp)," +
+                "INDEX idx_timestamp (timestamp)" +
+                ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"
+        };
+
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement()) {
+            for (String sql : statements) {
+                stmt.executeUpdate(sql);
+            }
+        }
+    }
+
+    private void fillLadders(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("INSERT IGNORE INTO vpractice_ladders (name) " +
+                "SELECT ladder FROM vpractice_elo UNION SELECT ladder FROM vpractice_kits " +
+                "UNION SELECT ladder FROM vpractice_match_history WHERE ladder IS NOT NULL");
+        }
+    }
+
+    /**
+     * Copy a table chunk by chunk in key order, pausing between chunks.
+     * Returns the last key copied.
+     */
+    private Object copyTable(String table, String key, Object start, String copySql)
+            throws SQLException, InterruptedException {
+        String boundSql = "SELECT MAX(k), COUNT(*) FROM (SELECT " + key + " AS k FROM " + table +
+            " WHERE " + key + " > ? ORDER BY " + key + " LIMIT ?) c";
+        String chunkSql = String.format(copySql, "s." + key + " > ? AND s." + key + " <= ?");
+
+        Object low = start;
+        long rows = 0;
+        int chunks = 0;
+        while (true) {
+            if (cancelled) throw new CancelledException();
+
+            try (Connection connection = pool.getConnection()) {
+                Object high;
+                int count;
+                try (PreparedStatement ps = connection.prepareStatement(boundSql)) {
+                    ps.setObject(1, low);
+                    ps.setInt(2, chunkSize);
+                    ResultSet rs = ps.executeQuery();
+                    rs.next();
+                    high = rs.getObject(1);
+                    count = rs.getInt(2);
+                }
+                if (high == null) break;
+
+                try (PreparedStatement ps = connection.prepareStatement(chunkSql)) {
+                    ps.setObject(1, low);
+                    ps.setObject(2, high);
+                    ps.executeUpdate();
+                }
+                low = high;
+                rows += count;
+            }
+
+            if (++chunks % 50 == 0) {
+                plugin.log("&7Compact schema: &f" + table + " &7" + rows + " rows copied");
+            }
+            Thread.sleep(throttleMillis);
+        }
+
+        rowsCopied += rows;
+        plugin.log("&7Compact schema: copied &f" + table + " &8(" + rows + " rows)");
+        return low;
+    }
+
+    private void copyTouched(Connection connection, List<UUID> players) throws SQLException {
+        for (int from = 0; from < players.size(); from += TOUCHED_CHUNK) {
+            List<UUID> chunk = players.subList(from, Math.min(players.size(), from + TOUCHED_CHUNK));
+            String in = "s.uuid IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            for (String copySql : new String[]{COPY_PLAYERS, COPY_ELO, COPY_KITS, COPY_SETTINGS}) {
+                try (PreparedStatement ps = connection.prepareStatement(String.format(copySql, in))) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setString(i + 1, chunk.get(i).toString());
+                    }
+                    ps.executeUpdate();
+                }
+            }
+        }
+    }
+
+    // =========================================================================
+    // CUTOVER
+    // =========================================================================
+
+    /**
+     * Drain the pool, bring the copies up to date and swap the tables.
+     * Borrowers are held off for the duration, so this is kept to the
+     * players touched during the copy plus new match history.
+     */
+    private void cutover() throws SQLException, InterruptedException {
+        // Let queued saves land now rather than during the pause
+        writeQueue.flush(CUTOVER_TIMEOUT);
+
+        try (Connection connection = pool.getConnection()) {
+            if (!pool.pauseBorrowers(CUTOVER_TIMEOUT)) {
+                throw new SQLException("timed out waiting for connections to drain");
+            }
+            long start = System.nanoTime();
+            int players;
+            try {
+                fillLadders(connection);
+                List<UUID> changed = new ArrayList<>(touched);
+                players = changed.size();
+                copyTouched(connection, changed);
+                try (PreparedStatement ps = connection.prepareStatement(String.format(COPY_HISTORY, "s.id > ?"))) {
+                    ps.setLong(1, lastHistoryId);
+                    ps.executeUpdate();
+                }
+
+                StringBuilder rename = new StringBuilder("RENAME TABLE ");
+                for (int i = 0; i < TABLES.length; i++) {
+                    if (i > 0) rename.append(", ");
+                    rename.append(TABLES[i]).append(" TO ").append(TABLES[i]).append("_legacy, ")
+                        .append(TABLES[i]).append("_compact TO ").append(TABLES[i]);
+                }
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.executeUpdate(rename.toString());
+                }
+
+                storage.onSchemaMigrationFinished(connection);
+            } finally {
+                pool.resumeBorrowers();
+            }
+            plugin.log("&7Compact schema cutover took &f" + (System.nanoTime() - start) / 1_000_000L +
+                "ms &8(" + players + " players re-copied; old tables kept as *_legacy)");
+        }
+    }
+
+    private static String uuidBytes(String column) {
+        return String.format(UUID_BYTES, column);
+    }
+
+    private static class CancelledException extends SQLException {
+        CancelledException() {
+            super("cancelled");
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package pw.vera.vpractice.storage;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lightweight bounded JDBC connection pool.
+ *
+ * Connections handed out are proxies whose close() returns the physical
+ * connection to the pool, so callers use plain try-with-resources.
+ * Works with any JDBC URL (MySQL, or an embedded H2/SQLite file for local testing).
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long maxLifetimeMillis;
+
+    /** Idle physical connections, most recently returned first */
+    private final LinkedBlockingDeque<PhysicalConnection> idle = new LinkedBlockingDeque<>();
+
+    /** One permit per connection that may be checked out */
+    private final Semaphore permits;
+
+    private volatile boolean closed = false;
+
+    // Saturation stats
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger peakActive = new AtomicInteger();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    /** Connections idle for less than this are handed out without a validation round trip */
+    private static final long VALIDATION_IDLE_MILLIS = 30000L;
+
+    public ConnectionPool(String url, String username, String password,
+                          int maxSize, long borrowTimeoutMillis, long maxLifetimeMillis) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.permits = new Semaphore(this.maxSize, true);
+    }
+
+    /**
+     * Open one connection eagerly so bad credentials fail at startup
+     * instead of on the first player join.
+     */
+    public void start() throws SQLException {
+        idle.offerFirst(openPhysical());
+    }
+
+    // =========================================================================
+    // BORROW / RETURN
+    // =========================================================================
+
+    /**
+     * Borrow a connection, blocking up to the configured timeout.
+     * Close the returned connection to give it back.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        totalWaitNanos.addAndGet(System.nanoTime() - start);
+
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis +
+                "ms waiting for a connection (" + active.get() + "/" + maxSize + " in use)");
+        }
+
+        try {
+            PhysicalConnection physical = takeValid();
+            borrows.incrementAndGet();
+            int now = active.incrementAndGet();
+            peakActive.accumulateAndGet(now, Math::max);
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PhysicalConnection takeValid() throws SQLException {
+        PhysicalConnection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            if (isUsable(physical)) {
+                return physical;
+            }
+            discard(physical);
+        }
+        return openPhysical();
+    }
+
+    private boolean isUsable(PhysicalConnection physical) {
+        long now = System.currentTimeMillis();
+        if (maxLifetimeMillis > 0 && now - physical.createdAt > maxLifetimeMillis) {
+            return false;
+        }
+        try {
+            if (physical.connection.isClosed()) return false;
+            // Recently returned connections were fine a moment ago; only ping ones the server may have dropped
+            return now - physical.returnedAt < VALIDATION_IDLE_MILLIS
+                || physical.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void giveBack(PhysicalConnection physical, boolean broken) {
+        active.decrementAndGet();
+        try {
+            if (closed || broken || !resetState(physical)) {
+                discard(physical);
+            } else {
+                physical.returnedAt = System.currentTimeMillis();
+                idle.offerFirst(physical);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean resetState(PhysicalConnection physical) {
+        try {
+            if (physical.connection.isClosed()) return false;
+            if (!physical.connection.getAutoCommit()) {
+                physical.connection.rollback();
+                physical.connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PhysicalConnection openPhysical() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, username, password);
+        open.incrementAndGet();
+        return new PhysicalConnection(connection);
+    }
+
+    private void discard(PhysicalConnection physical) {
+        open.decrementAndGet();
+        recycled.incrementAndGet();
+        try {
+            physical.connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private Connection wrap(PhysicalConnection physical) {
+        return (Connection) Proxy.newProxyInstance(
+            ConnectionPool.class.getClassLoader(),
+            new Class<?>[]{Connection.class},
+            new LeaseHandler(physical));
+    }
+
+    /**
+     * Wait for every other borrower to give its connection back and hold new
+     * borrowers off until {@link #resumeBorrowers()}. For short maintenance
+     * windows such as a table swap; the caller must be holding exactly one
+     * connection. Returns false if the others were not returned in time.
+     */
+    public boolean pauseBorrowers(long timeoutMillis) throws InterruptedException {
+        return permits.tryAcquire(maxSize - 1, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void resumeBorrowers() {
+        permits.release(maxSize - 1);
+    }
+
+    // =========================================================================
+    // LIFECYCLE
+    // =========================================================================
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Close all idle connections. Connections still checked out are
+     * closed as soon as their borrower returns them.
+     */
+    public void close() {
+        closed = true;
+        PhysicalConnection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            discard(physical);
+        }
+    }
+
+    // =========================================================================
+    // STATS
+    // =========================================================================
+
+    public int getMaxSize() { return maxSize; }
+    public int getOpenConnections() { return open.get(); }
+    public int getActiveConnections() { return active.get(); }
+    public int getIdleConnections() { return idle.size(); }
+    public int getWaitingThreads() { return waiting.get(); }
+    public int getPeakActive() { return peakActive.get(); }
+    public long getTotalBorrows() { return borrows.get(); }
+    public long getTimeouts() { return timeouts.get(); }
+    public long getRecycled() { return recycled.get(); }
+
+    /**
+     * Average time a borrower waited for a permit, in milliseconds.
+     */
+    public double getAverageWaitMillis() {
+        long total = borrows.get() + timeouts.get();
+        if (total == 0) return 0.0;
+        return totalWaitNanos.get() / 1_000_000.0 / total;
+    }
+
+    /**
+     * Fraction of the pool currently checked out (0.0 - 1.0).
+     */
+    public double getSaturation() {
+        return (double) active.get() / maxSize;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{active=" + active.get() + "/" + maxSize +
+               ", idle=" + idle.size() + ", waiting=" + waiting.get() +
+               ", peak=" + peakActive.get() + ", borrows=" + borrows.get() +
+               ", timeouts=" + timeouts.get() + ", recycled=" + recycled.get() + "}";
+    }
+
+    // =========================================================================
+    // INNER CLASSES
+    // =========================================================================
+
+    private static final class PhysicalConnection {
+        private final Connection connection;
+        private final long createdAt;
+        private volatile long returnedAt;
+
+        private PhysicalConnection(Connection connection) {
+            this.connection = connection;
+            this.createdAt = System.currentTimeMillis();
+            this.returnedAt = createdAt;
+        }
+    }
+
+    /**
+     * Proxy handler for a single lease. close() returns the connection
+     * instead of closing it; any call after close() fails.
+     */
+    private final class LeaseHandler implements InvocationHandler {
+        private final PhysicalConnection physical;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+        private volatile boolean broken = false;
+
+        private LeaseHandler(PhysicalConnection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                if (released.compareAndSet(false, true)) {
+                    giveBack(physical, broken);
+                }
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return released.get() || physical.connection.isClosed();
+            }
+            if (name.equals("unwrap") || name.equals("isWrapperFor")) {
+                return method.invoke(physical.connection, args);
+            }
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (name.equals("toString")) {
+                return "PooledConnection[" + physical.connection + "]";
+            }
+            if (released.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(physical.connection, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    // Class 08 = connection exception, drop rather than recycle
+                    if (state != null && state.startsWith("08")) {
+                        broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+    }
+}
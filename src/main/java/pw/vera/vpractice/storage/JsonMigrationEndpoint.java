@@ -0,0 +1,243 @@
+package pw.vera.vpractice.storage;
+
+import com.google.gson.JsonObject;
+import pw.vera.vpractice.kit.KitSerializer;
+import pw.vera.vpractice.vPractice;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * File side of a storage migration: kit layouts, settings and names in the
+ * JSON data folder.
+ *
+ * Kits, settings and names are walked in UUID order (shard by shard for the
+ * sharded layout, so only one batch of players is held at a time).
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+public class JsonMigrationEndpoint implements MigrationEndpoint {
+
+    private final vPractice plugin;
+    private final JsonStorage storage;
+
+    // Single-file layout: every kit owner, sorted once
+    private List<UUID> owners;
+
+    // Single-file layout settings and names, each loaded and sorted once
+    private Map<UUID, Map<String, Object>> settings;
+    private List<UUID> settingsOwners;
+    private Map<UUID, String> names;
+    private List<UUID> nameOwners;
+
+    public JsonMigrationEndpoint(vPractice plugin, StorageManager manager) {
+        this.plugin = plugin;
+        JsonStorage active = manager.getJsonStorage();
+        this.storage = active != null ? active : new JsonStorage(plugin);
+    }
+
+    // =========================================================================
+    // KITS
+    // =========================================================================
+
+    @Override
+    public List<KitRecord> readKits(String afterKey, int limit) {
+        List<KitRecord> records = new ArrayList<>();
+        UUID after = Record.keyUuid(afterKey);
+
+        if (storage.isSharded()) {
+            String fromShard = after != null ? after.toString().substring(0, 2) : "";
+            for (String shard : storage.listShards()) {
+                if (shard.compareTo(fromShard) < 0) continue;
+                for (UUID uuid : storage.listShard(shard)) {
+                    if (after != null && uuid.toString().compareTo(after.toString()) < 0) continue;
+                    if (addKits(records, uuid, afterKey)) {
+                        // Read from disk for the migration only; don't keep it cached
+                        storage.evictPlayer(uuid);
+                    }
+                    if (records.size() >= limit) return records;
+                }
+            }
+            return records;
+        }
+
+        if (owners == null) {
+            owners = sorted(storage.getKitOwners());
+        }
+        for (UUID uuid : owners) {
+            if (after != null && uuid.toString().compareTo(after.toString()) < 0) continue;
+            addKits(records, uuid, afterKey);
+            if (records.size() >= limit) break;
+        }
+        return records;
+    }
+
+    /**
+     * Append a player's kits whose key sorts after {@code afterKey}.
+     * Returns whether any kits were read from disk.
+     */
+    private boolean addKits(List<KitRecord> records, UUID uuid, String afterKey) {
+        Map<String, byte[]> layouts = storage.getKitLayouts(uuid);
+        if (layouts.isEmpty()) return false;
+
+        List<String> ladders = new ArrayList<>(layouts.keySet());
+        Collections.sort(ladders);
+        for (String ladder : ladders) {
+            KitRecord record = new KitRecord(uuid, ladder, null, null);
+            if (record.key().compareTo(afterKey) <= 0) continue;
+            byte[] layout = layouts.get(ladder);
+            records.add(new KitRecord(uuid, ladder, KitSerializer.hash(layout), layout));
+        }
+        return true;
+    }
+
+    @Override
+    public void writeKits(List<KitRecord> batch) {
+        for (KitRecord record : batch) {
+            storage.saveKitLayout(record.uuid, record.ladder, record.hash, record.layout);
+        }
+        // The checkpoint after this batch must not get ahead of the files
+        storage.flushKits();
+        if (storage.isSharded()) {
+            for (KitRecord record : batch) {
+                storage.evictPlayer(record.uuid);
+            }
+        }
+    }
+
+    // =========================================================================
+    // SETTINGS
+    // =========================================================================
+
+    @Override
+    public List<SettingsRecord> readSettings(String afterKey, int limit) {
+        List<SettingsRecord> records = new ArrayList<>();
+        UUID after = Record.keyUuid(afterKey);
+
+        if (storage.isSharded()) {
+            String fromShard = after != null ? after.toString().substring(0, 2) : "";
+            for (String shard : storage.listShards()) {
+                if (shard.compareTo(fromShard) < 0) continue;
+                for (UUID uuid : storage.listShard(shard)) {
+                    if (after != null && uuid.toString().compareTo(after.toString()) <= 0) continue;
+                    Map<String, Object> values = storage.getSettings(Collections.singletonList(uuid)).get(uuid);
+                    if (values == null) continue;
+                    records.add(toSettingsRecord(uuid, values));
+                    if (records.size() >= limit) return records;
+                }
+            }
+            return records;
+        }
+
+        if (settings == null) {
+            settings = storage.loadAllSettings();
+            settingsOwners = sorted(settings.keySet());
+        }
+        for (UUID uuid : settingsOwners) {
+            if (after != null && uuid.toString().compareTo(after.toString()) <= 0) continue;
+            records.add(toSettingsRecord(uuid, settings.get(uuid)));
+            if (records.size() >= limit) break;
+        }
+        return records;
+    }
+
+    private static SettingsRecord toSettingsRecord(UUID uuid, Map<String, Object> values) {
+        Object pingRange = values.get("ping_range");
+        return new SettingsRecord(uuid,
+            flag(values, "scoreboard_enabled"),
+            flag(values, "duel_requests"),
+            flag(values, "party_invites"),
+            flag(values, "spectator_visibility"),
+            pingRange != null ? pingRange.toString() : null);
+    }
+
+    /**
+     * Every toggle defaults to on, as in PlayerData.
+     */
+    private static boolean flag(Map<String, Object> values, String key) {
+        Object value = values.get(key);
+        return !(value instanceof Boolean) || (Boolean) value;
+    }
+
+    @Override
+    public void writeSettings(List<SettingsRecord> batch) {
+        Map<UUID, JsonObject> patch = new HashMap<>();
+        for (SettingsRecord record : batch) {
+            JsonObject values = new JsonObject();
+            values.addProperty("scoreboard_enabled", record.scoreboardEnabled);
+            values.addProperty("duel_requests", record.duelRequests);
+            values.addProperty("party_invites", record.partyInvites);
+            values.addProperty("spectator_visibility", record.spectatorVisibility);
+            if (record.pingRange != null) {
+                values.addProperty("ping_range", record.pingRange);
+            }
+            patch.put(record.uuid, values);
+        }
+        storage.writeSettings(patch);
+    }
+
+    // =========================================================================
+    // NAMES
+    // =========================================================================
+
+    @Override
+    public List<NameRecord> readNames(String afterKey, int limit) {
+        UUID after = Record.keyUuid(afterKey);
+        List<NameRecord> records = new ArrayList<>();
+
+        if (storage.isSharded()) {
+            String fromShard = after != null ? after.toString().substring(0, 2) : "";
+            for (String shard : storage.listShards()) {
+                if (shard.compareTo(fromShard) < 0) continue;
+                for (UUID uuid : storage.listShard(shard)) {
+                    if (after != null && uuid.toString().compareTo(after.toString()) <= 0) continue;
+                    String name = storage.getNames(Collections.singletonList(uuid)).get(uuid);
+                    if (name == null) continue;
+                    records.add(new NameRecord(uuid, name));
+                    if (records.size() >= limit) return records;
+                }
+            }
+            return records;
+        }
+
+        if (names == null) {
+            names = storage.getAllNames();
+            nameOwners = sorted(names.keySet());
+        }
+        for (UUID uuid : nameOwners) {
+            if (after != null && uuid.toString().compareTo(after.toString()) <= 0) continue;
+            records.add(new NameRecord(uuid, names.get(uuid)));
+            if (records.size() >= limit) break;
+        }
+        return records;
+    }
+
+    @Override
+    public void writeNames(List<NameRecord> batch) throws IOException {
+        Map<UUID, String> names = new LinkedHashMap<>();
+        for (NameRecord record : batch) {
+            names.put(record.uuid, record.name);
+        }
+        storage.saveNames(names);
+    }
+
+    private static List<UUID> sorted(Collection<UUID> uuids) {
+        List<UUID> list = new ArrayList<>(uuids);
+        list.sort(Comparator.comparing(UUID::toString));
+        return list;
+    }
+
+    @Override
+    public void close() {
+        storage.flushKits();
+    }
+}
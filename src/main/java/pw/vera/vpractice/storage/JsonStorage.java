@@ -1,16 +1,34 @@
 package pw.vera.vpractice.storage;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import org.bukkit.Bukkit;
 import pw.vera.vpractice.vPractice;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 
 /**
  * JSON-based file storage manager.
  * Handles all file I/O operations for player data.
+ *
+ * Files are read and written as token streams rather than object trees, so
+ * memory stays flat as the player count grows, and every write replaces the
+ * file atomically so a crash mid-save leaves the previous version intact.
+ *
+ * With the sharded layout, kits, settings and stats live in one small file
+ * per player under players/ab/, where "ab" is the start of the UUID, and
+ * kit layouts are content-addressed under layouts/. A player's file is read
+ * when they join and dropped from memory after they quit. Ratings for
+ * leaderboards and ranks stay in EloManager's compact rating snapshot, so
+ * no profile has to be loaded to answer them.
  * 
  * @author Vera Network
  * @version 1.0.0
@@ -20,18 +38,45 @@ public class JsonStorage {
     private final vPractice plugin;
     private final File dataFolder;
     private final Gson gson;
+    private final boolean prettyPrint;
+    private final boolean sharded;
     
     // File paths
     private File eloFile;
     private File kitsFile;
     private File settingsFile;
     private File statsFile;
+    private File namesFile;
+    private File namesLog;
+    private File playersFolder;
+    private File layoutsFolder;
+    
+    // Kit layouts: uuid -> ladder -> layout hash, and hash -> encoded layout.
+    // When sharded, assignments are held for online players only and the
+    // layout map holds just the layouts not yet written to disk.
+    private final Map<UUID, Map<String, String>> kitAssignments = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> kitLayouts = new ConcurrentHashMap<>();
+    private final AtomicBoolean kitsWriteScheduled = new AtomicBoolean(false);
+    
+    // Guards names.log appends and scans
+    private final Object namesLock = new Object();
+    
+    // Sharded layout: players with unwritten kit edits, players who quit
+    // while they still had some or while their kits were loading, and kit
+    // loads in flight (guarded by evictionLock)
+    private final Set<UUID> dirtyKits = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> pendingEvictions = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Integer> kitLoads = new HashMap<>();
+    private final Object evictionLock = new Object();
+
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     public JsonStorage(vPractice plugin) {
         this.plugin = plugin;
         this.dataFolder = new File(plugin.getDataFolder(), "data");
+        this.prettyPrint = plugin.getConfig().getBoolean("storage.json.pretty-print", false);
+        this.sharded = plugin.getConfig().getString("storage.json.layout", "single").equalsIgnoreCase("sharded");
         this.gson = new GsonBuilder()
-                .setPrettyPrinting()
                 .disableHtmlEscaping()
                 .create();
         
@@ -47,22 +92,40 @@ public class JsonStorage {
         kitsFile = new File(dataFolder, "kits.json");
         settingsFile = new File(dataFolder, "settings.json");
         statsFile = new File(dataFolder, "stats.json");
+        namesFile = new File(dataFolder, "names.json");
+        namesLog = new File(dataFolder, "names.log");
         
         // Create files if they don't exist
         createFileIfNotExists(eloFile);
         createFileIfNotExists(kitsFile);
         createFileIfNotExists(settingsFile);
         createFileIfNotExists(statsFile);
+        
+        loadKits();
+        
+        if (sharded) {
+            playersFolder = new File(dataFolder, "players");
+            layoutsFolder = new File(dataFolder, "layouts");
+            playersFolder.mkdirs();
+            layoutsFolder.mkdirs();
+            
+            // Anything still in kits.json was saved before switching layouts
+            if (!kitAssignments.isEmpty()) {
+                migrateKitsToShards();
+            }
+        }
+        
+        migrateNames();
+        if (!sharded) {
+            compactNamesLog();
+        }
     }
 
     private void createFileIfNotExists(File file) {
         if (!file.exists()) {
             try {
-                file.createNewFile();
                 // Write empty JSON object
-                try (Writer writer = new FileWriter(file)) {
-                    writer.write("{}");
-                }
+                writeAtomically(file, writer -> writer.beginObject().endObject());
             } catch (IOException e) {
                 plugin.getLogger().severe("Failed to create " + file.getName() + ": " + e.getMessage());
             }
@@ -76,21 +139,21 @@ public class JsonStorage {
     public Map<UUID, Map<String, Integer>> loadAllElo() {
         Map<UUID, Map<String, Integer>> data = new ConcurrentHashMap<>();
         
-        try (Reader reader = new FileReader(eloFile)) {
-            JsonObject json = gson.fromJson(reader, JsonObject.class);
-            if (json != null) {
-                for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
-                    UUID uuid = UUID.fromString(entry.getKey());
-                    Map<String, Integer> ladderElo = new ConcurrentHashMap<>();
-                    
-                    JsonObject ladders = entry.getValue().getAsJsonObject();
-                    for (Map.Entry<String, JsonElement> ladderEntry : ladders.entrySet()) {
-                        ladderElo.put(ladderEntry.getKey(), ladderEntry.getValue().getAsInt());
-                    }
-                    
-                    data.put(uuid, ladderElo);
+        try (JsonReader reader = openReader(eloFile)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                UUID uuid = UUID.fromString(reader.nextName());
+                Map<String, Integer> ladderElo = new ConcurrentHashMap<>();
+                
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    ladderElo.put(reader.nextName(), reader.nextInt());
                 }
+                reader.endObject();
+                
+                data.put(uuid, ladderElo);
             }
+            reader.endObject();
         } catch (Exception e) {
             plugin.getLogger().warning("Failed to load elo.json: " + e.getMessage());
         }
@@ -99,17 +162,17 @@ public class JsonStorage {
     }
 
     public void saveAllElo(Map<UUID, Map<String, Integer>> data) {
-        JsonObject json = new JsonObject();
-        
-        for (Map.Entry<UUID, Map<String, Integer>> entry : data.entrySet()) {
-            JsonObject ladders = new JsonObject();
-            for (Map.Entry<String, Integer> ladderEntry : entry.getValue().entrySet()) {
-                ladders.addProperty(ladderEntry.getKey(), ladderEntry.getValue());
+        writeAsync(eloFile, writer -> {
+            writer.beginObject();
+            for (Map.Entry<UUID, Map<String, Integer>> entry : data.entrySet()) {
+                writer.name(entry.getKey().toString()).beginObject();
+                for (Map.Entry<String, Integer> ladderEntry : entry.getValue().entrySet()) {
+                    writer.name(ladderEntry.getKey()).value(ladderEntry.getValue());
+                }
+                writer.endObject();
             }
-            json.add(entry.getKey().toString(), ladders);
-        }
-        
-        saveJson(eloFile, json);
+            writer.endObject();
+        });
     }
 
     // =========================================================================
@@ -119,24 +182,36 @@ public class JsonStorage {
     public Map<UUID, Map<String, int[]>> loadAllStats() {
         Map<UUID, Map<String, int[]>> data = new ConcurrentHashMap<>();
         
-        try (Reader reader = new FileReader(statsFile)) {
-            JsonObject json = gson.fromJson(reader, JsonObject.class);
-            if (json != null) {
-                for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
-                    UUID uuid = UUID.fromString(entry.getKey());
-                    Map<String, int[]> ladderStats = new ConcurrentHashMap<>();
-                    
-                    JsonObject ladders = entry.getValue().getAsJsonObject();
-                    for (Map.Entry<String, JsonElement> ladderEntry : ladders.entrySet()) {
-                        JsonObject statsObj = ladderEntry.getValue().getAsJsonObject();
-                        int wins = statsObj.has("wins") ? statsObj.get("wins").getAsInt() : 0;
-                        int losses = statsObj.has("losses") ? statsObj.get("losses").getAsInt() : 0;
-                        ladderStats.put(ladderEntry.getKey(), new int[]{wins, losses});
+        try (JsonReader reader = openReader(statsFile)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                UUID uuid = UUID.fromString(reader.nextName());
+                Map<String, int[]> ladderStats = new ConcurrentHashMap<>();
+                
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String ladder = reader.nextName();
+                    int wins = 0;
+                    int losses = 0;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String field = reader.nextName();
+                        if (field.equals("wins")) {
+                            wins = reader.nextInt();
+                        } else if (field.equals("losses")) {
+                            losses = reader.nextInt();
+                        } else {
+                            reader.skipValue();
+                        }
                     }
-                    
-                    data.put(uuid, ladderStats);
+                    reader.endObject();
+                    ladderStats.put(ladder, new int[]{wins, losses});
                 }
+                reader.endObject();
+                
+                data.put(uuid, ladderStats);
             }
+            reader.endObject();
         } catch (Exception e) {
             plugin.getLogger().warning("Failed to load stats.json: " + e.getMessage());
         }
@@ -145,20 +220,20 @@ public class JsonStorage {
     }
 
     public void saveAllStats(Map<UUID, Map<String, int[]>> data) {
-        JsonObject json = new JsonObject();
-        
-        for (Map.Entry<UUID, Map<String, int[]>> entry : data.entrySet()) {
-            JsonObject ladders = new JsonObject();
-            for (Map.Entry<String, int[]> ladderEntry : entry.getValue().entrySet()) {
-                JsonObject statsObj = new JsonObject();
-                statsObj.addProperty("wins", ladderEntry.getValue()[0]);
-                statsObj.addProperty("losses", ladderEntry.getValue()[1]);
-                ladders.add(ladderEntry.getKey(), statsObj);
+        writeAsync(statsFile, writer -> {
+            writer.beginObject();
+            for (Map.Entry<UUID, Map<String, int[]>> entry : data.entrySet()) {
+                writer.name(entry.getKey().toString()).beginObject();
+                for (Map.Entry<String, int[]> ladderEntry : entry.getValue().entrySet()) {
+                    writer.name(ladderEntry.getKey()).beginObject()
+                        .name("wins").value(ladderEntry.getValue()[0])
+                        .name("losses").value(ladderEntry.getValue()[1])
+                        .endObject();
+                }
+                writer.endObject();
             }
-            json.add(entry.getKey().toString(), ladders);
-        }
-        
-        saveJson(statsFile, json);
+            writer.endObject();
+        });
     }
 
     // =========================================================================
@@ -168,31 +243,34 @@ public class JsonStorage {
     public Map<UUID, Map<String, Object>> loadAllSettings() {
         Map<UUID, Map<String, Object>> data = new ConcurrentHashMap<>();
         
-        try (Reader reader = new FileReader(settingsFile)) {
-            JsonObject json = gson.fromJson(reader, JsonObject.class);
-            if (json != null) {
-                for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
-                    UUID uuid = UUID.fromString(entry.getKey());
-                    Map<String, Object> settings = new ConcurrentHashMap<>();
-                    
-                    JsonObject settingsObj = entry.getValue().getAsJsonObject();
-                    for (Map.Entry<String, JsonElement> settingEntry : settingsObj.entrySet()) {
-                        JsonElement value = settingEntry.getValue();
-                        if (value.isJsonPrimitive()) {
-                            JsonPrimitive primitive = value.getAsJsonPrimitive();
-                            if (primitive.isBoolean()) {
-                                settings.put(settingEntry.getKey(), primitive.getAsBoolean());
-                            } else if (primitive.isNumber()) {
-                                settings.put(settingEntry.getKey(), primitive.getAsInt());
-                            } else {
-                                settings.put(settingEntry.getKey(), primitive.getAsString());
-                            }
-                        }
+        try (JsonReader reader = openReader(settingsFile)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                UUID uuid = UUID.fromString(reader.nextName());
+                Map<String, Object> settings = new ConcurrentHashMap<>();
+                
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String key = reader.nextName();
+                    switch (reader.peek()) {
+                        case BOOLEAN:
+                            settings.put(key, reader.nextBoolean());
+                            break;
+                        case NUMBER:
+                            settings.put(key, reader.nextInt());
+                            break;
+                        case STRING:
+                            settings.put(key, reader.nextString());
+                            break;
+                        default:
+                            reader.skipValue();
                     }
-                    
-                    data.put(uuid, settings);
                 }
+                reader.endObject();
+                
+                data.put(uuid, settings);
             }
+            reader.endObject();
         } catch (Exception e) {
             plugin.getLogger().warning("Failed to load settings.json: " + e.getMessage());
         }
@@ -201,89 +279,895 @@ public class JsonStorage {
     }
 
     public void saveAllSettings(Map<UUID, Map<String, Object>> data) {
-        JsonObject json = new JsonObject();
+        writeAsync(settingsFile, writer -> {
+            writer.beginObject();
+            for (Map.Entry<UUID, Map<String, Object>> entry : data.entrySet()) {
+                writer.name(entry.getKey().toString()).beginObject();
+                for (Map.Entry<String, Object> settingEntry : entry.getValue().entrySet()) {
+                    Object value = settingEntry.getValue();
+                    writer.name(settingEntry.getKey());
+                    if (value instanceof Boolean) {
+                        writer.value((Boolean) value);
+                    } else if (value instanceof Number) {
+                        writer.value((Number) value);
+                    } else {
+                        writer.value(value.toString());
+                    }
+                }
+                writer.endObject();
+            }
+            writer.endObject();
+        });
+    }
+
+    /**
+     * Settings of the given players read from their player files (sharded
+     * layout; see {@link #loadAllSettings} otherwise). Values are as stored
+     * (Boolean, Integer, String); players without settings are left out.
+     */
+    public Map<UUID, Map<String, Object>> getSettings(Collection<UUID> uuids) {
+        Map<UUID, Map<String, Object>> result = new HashMap<>();
+        for (UUID uuid : uuids) {
+            JsonElement section = readPlayerFile(uuid).get("settings");
+            if (section == null || !section.isJsonObject()) continue;
+            Map<String, Object> settings = new HashMap<>();
+            for (Map.Entry<String, JsonElement> field : section.getAsJsonObject().entrySet()) {
+                if (!field.getValue().isJsonPrimitive()) continue;
+                JsonPrimitive value = field.getValue().getAsJsonPrimitive();
+                settings.put(field.getKey(), value.isBoolean() ? (Object) value.getAsBoolean()
+                    : value.isNumber() ? (Object) value.getAsInt() : value.getAsString());
+            }
+            result.put(uuid, settings);
+        }
+        return result;
+    }
+
+    /**
+     * Merge settings into storage now, on the calling thread.
+     */
+    public void writeSettings(Map<UUID, JsonObject> settings) {
+        if (sharded) {
+            for (Map.Entry<UUID, JsonObject> entry : settings.entrySet()) {
+                patchPlayerFile(entry.getKey(), Collections.singletonMap("settings", entry.getValue()));
+            }
+            return;
+        }
+        Map<String, JsonObject> patch = new HashMap<>();
+        settings.forEach((uuid, values) -> patch.put(uuid.toString(), values));
+        patchFile(settingsFile, patch);
+    }
+
+    // =========================================================================
+    // NAMES
+    // =========================================================================
+
+    /**
+     * Known usernames for the given players; unknown players are left out.
+     * Sharded players keep their name in their own file; otherwise names.log
+     * is scanned and the last line for each player wins.
+     */
+    public Map<UUID, String> getNames(Collection<UUID> uuids) {
+        Map<UUID, String> result = new HashMap<>();
+        if (sharded) {
+            for (UUID uuid : uuids) {
+                JsonElement name = readPlayerFile(uuid).get("name");
+                if (name != null && name.isJsonPrimitive()) {
+                    result.put(uuid, name.getAsString());
+                }
+            }
+            return result;
+        }
         
-        for (Map.Entry<UUID, Map<String, Object>> entry : data.entrySet()) {
-            JsonObject settings = new JsonObject();
-            for (Map.Entry<String, Object> settingEntry : entry.getValue().entrySet()) {
-                Object value = settingEntry.getValue();
-                if (value instanceof Boolean) {
-                    settings.addProperty(settingEntry.getKey(), (Boolean) value);
-                } else if (value instanceof Number) {
-                    settings.addProperty(settingEntry.getKey(), (Number) value);
-                } else {
-                    settings.addProperty(settingEntry.getKey(), value.toString());
+        Set<UUID> wanted = new HashSet<>(uuids);
+        scanNames((uuid, name) -> {
+            if (wanted.contains(uuid)) {
+                result.put(uuid, name);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Every username in names.log. Single-file layout only; sharded players
+     * are read per shard with {@link #getNames(Collection)}.
+     */
+    public Map<UUID, String> getAllNames() {
+        Map<UUID, String> result = new HashMap<>();
+        scanNames(result::put);
+        return result;
+    }
+
+    /**
+     * Record a player's username: a field in their player file when sharded,
+     * otherwise a line appended to names.log. Blocking.
+     */
+    public void saveName(UUID uuid, String name) throws IOException {
+        saveNames(Collections.singletonMap(uuid, name));
+    }
+
+    public void saveNames(Map<UUID, String> batch) throws IOException {
+        if (!sharded) {
+            appendNames(batch);
+            return;
+        }
+        for (Map.Entry<UUID, String> entry : batch.entrySet()) {
+            JsonElement current = readPlayerFile(entry.getKey()).get("name");
+            if (current != null && current.isJsonPrimitive() && current.getAsString().equals(entry.getValue())) continue;
+            if (!patchPlayerFile(entry.getKey(), Collections.singletonMap("name", new JsonPrimitive(entry.getValue())))) {
+                throw new IOException("could not write player file for " + entry.getKey());
+            }
+        }
+    }
+
+    private void appendNames(Map<UUID, String> batch) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<UUID, String> entry : batch.entrySet()) {
+            lines.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        synchronized (namesLock) {
+            try (FileOutputStream fileOut = new FileOutputStream(namesLog, true)) {
+                fileOut.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+                fileOut.getFD().sync();
+            }
+        }
+    }
+
+    /**
+     * Feed every line of names.log to {@code visitor}, oldest first.
+     */
+    private void scanNames(BiConsumer<UUID, String> visitor) {
+        synchronized (namesLock) {
+            if (!namesLog.exists()) return;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(namesLog), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int space = line.indexOf(' ');
+                    if (space <= 0 || space == line.length() - 1 || line.indexOf(' ', space + 1) >= 0) continue;
+                    try {
+                        visitor.accept(UUID.fromString(line.substring(0, space)), line.substring(space + 1));
+                    } catch (IllegalArgumentException ignored) {
+                        // Partial line left by a crash mid-append
+                    }
                 }
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to read names.log: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rewrite names.log with one line per player once superseded lines make
+     * up more than half of it, or when a crash left a partial last line.
+     * Runs at startup, while the single-file layout loads everything else.
+     */
+    private void compactNamesLog() {
+        if (!namesLog.exists()) return;
+        
+        Map<UUID, String> latest = new LinkedHashMap<>();
+        int[] lines = {0};
+        scanNames((uuid, name) -> {
+            latest.put(uuid, name);
+            lines[0]++;
+        });
+        
+        try {
+            if (lines[0] <= latest.size() * 2 && endsWithNewline(namesLog)) return;
+            
+            StringBuilder compacted = new StringBuilder();
+            for (Map.Entry<UUID, String> entry : latest.entrySet()) {
+                compacted.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+            }
+            synchronized (namesLock) {
+                writeBytesAtomically(namesLog, compacted.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to compact names.log: " + e.getMessage());
+        }
+    }
+
+    private static boolean endsWithNewline(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            if (in.length() == 0) return true;
+            in.seek(in.length() - 1);
+            return in.read() == '\n';
+        }
+    }
+
+    /**
+     * One-off move of names.json, which was rewritten whole on every change,
+     * into names.log or the player files; and of names.log into the player
+     * files after switching to the sharded layout. The old file is renamed
+     * only after every name has been written.
+     */
+    private void migrateNames() {
+        boolean fromJson = namesFile.exists();
+        boolean fromLog = sharded && namesLog.exists();
+        if (!fromJson && !fromLog) return;
+        
+        Map<UUID, String> moved = new LinkedHashMap<>();
+        if (fromJson) {
+            try (JsonReader reader = openReader(namesFile)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    moved.put(UUID.fromString(reader.nextName()), reader.nextString());
+                }
+                reader.endObject();
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to load names.json: " + e.getMessage());
+                return;
             }
-            json.add(entry.getKey().toString(), settings);
+        }
+        if (fromLog) {
+            scanNames(moved::put);
         }
         
-        saveJson(settingsFile, json);
+        try {
+            saveNames(moved);
+            if (fromJson) {
+                Files.move(namesFile.toPath(), new File(dataFolder, "names.json.migrated").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (fromLog) {
+                Files.move(namesLog.toPath(), new File(dataFolder, "names.log.migrated").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (!moved.isEmpty()) {
+                plugin.log("&7Moved names for &f" + moved.size() + " &7players into "
+                    + (sharded ? "sharded files" : "names.log"));
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Name migration incomplete; old name files left in place: " + e.getMessage());
+        }
     }
 
     // =========================================================================
     // KIT DATA
     // =========================================================================
 
-    public Map<UUID, Map<String, String>> loadAllKits() {
-        Map<UUID, Map<String, String>> data = new ConcurrentHashMap<>();
-        
-        try (Reader reader = new FileReader(kitsFile)) {
-            JsonObject json = gson.fromJson(reader, JsonObject.class);
-            if (json != null) {
-                for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
-                    UUID uuid = UUID.fromString(entry.getKey());
-                    Map<String, String> ladderKits = new ConcurrentHashMap<>();
-                    
-                    JsonObject ladders = entry.getValue().getAsJsonObject();
-                    for (Map.Entry<String, JsonElement> ladderEntry : ladders.entrySet()) {
-                        ladderKits.put(ladderEntry.getKey(), ladderEntry.getValue().getAsString());
+    /**
+     * Read kits.json into memory. Layouts are kept encoded; decoding
+     * happens per player when they join.
+     */
+    private void loadKits() {
+        try (JsonReader reader = openReader(kitsFile)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String section = reader.nextName();
+                if (section.equals("layouts")) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        kitLayouts.put(reader.nextName(), Base64.getDecoder().decode(reader.nextString()));
+                    }
+                    reader.endObject();
+                } else if (section.equals("players")) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        UUID uuid = UUID.fromString(reader.nextName());
+                        Map<String, String> ladderKits = new ConcurrentHashMap<>();
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            ladderKits.put(reader.nextName(), reader.nextString());
+                        }
+                        reader.endObject();
+                        kitAssignments.put(uuid, ladderKits);
                     }
-                    
-                    data.put(uuid, ladderKits);
+                    reader.endObject();
+                } else {
+                    reader.skipValue();
                 }
             }
+            reader.endObject();
         } catch (Exception e) {
             plugin.getLogger().warning("Failed to load kits.json: " + e.getMessage());
         }
+    }
+
+    /**
+     * Encoded layouts for a player, ladder name -> layout bytes.
+     */
+    public Map<String, byte[]> getKitLayouts(UUID uuid) {
+        if (sharded) {
+            return loadShardedKits(uuid);
+        }
         
-        return data;
+        Map<String, String> ladderKits = kitAssignments.get(uuid);
+        if (ladderKits == null) return Collections.emptyMap();
+        
+        Map<String, byte[]> result = new HashMap<>();
+        for (Map.Entry<String, String> entry : ladderKits.entrySet()) {
+            byte[] layout = kitLayouts.get(entry.getValue());
+            if (layout != null) {
+                result.put(entry.getKey(), layout);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Point a player's ladder at a layout and schedule a rewrite of kits.json.
+     * Identical layouts share one entry, keyed by content hash.
+     */
+    public void saveKitLayout(UUID uuid, String ladder, String hash, byte[] layout) {
+        kitLayouts.putIfAbsent(hash, layout);
+        kitAssignments.computeIfAbsent(uuid, k -> new ConcurrentHashMap<>()).put(ladder, hash);
+        if (sharded) {
+            dirtyKits.add(uuid);
+        }
+        
+        // Coalesce edits made within a second into one write
+        if (kitsWriteScheduled.compareAndSet(false, true)) {
+            Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, this::writeKits, 20L);
+        }
+    }
+
+    /**
+     * Write kits.json now if an edit is still waiting to be written.
+     */
+    public void flushKits() {
+        if (kitsWriteScheduled.get()) {
+            writeKits();
+        }
+    }
+
+    private synchronized void writeKits() {
+        kitsWriteScheduled.set(false);
+        
+        if (sharded) {
+            writeShardedKits();
+            return;
+        }
+        
+        try {
+            writeAtomically(kitsFile, writer -> {
+                writer.beginObject();
+                
+                // Layouts nobody points at any more are dropped from the file
+                Set<String> referenced = new HashSet<>();
+                for (Map<String, String> ladders : kitAssignments.values()) {
+                    referenced.addAll(ladders.values());
+                }
+                writer.name("layouts").beginObject();
+                for (String hash : referenced) {
+                    byte[] layout = kitLayouts.get(hash);
+                    if (layout != null) {
+                        writer.name(hash).value(Base64.getEncoder().encodeToString(layout));
+                    }
+                }
+                writer.endObject();
+                
+                writer.name("players").beginObject();
+                for (Map.Entry<UUID, Map<String, String>> entry : kitAssignments.entrySet()) {
+                    writer.name(entry.getKey().toString()).beginObject();
+                    for (Map.Entry<String, String> ladderEntry : entry.getValue().entrySet()) {
+                        writer.name(ladderEntry.getKey()).value(ladderEntry.getValue());
+                    }
+                    writer.endObject();
+                }
+                writer.endObject();
+                
+                writer.endObject();
+            });
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to save kits.json: " + e.getMessage());
+        }
+    }
+
+    // =========================================================================
+    // INCREMENTAL PLAYER SAVES
+    // =========================================================================
+
+    /**
+     * Persist only the dirty ladders and settings of the given players.
+     * Values are captured on the calling thread; the affected files are
+     * patched and rewritten asynchronously, and untouched files are left alone.
+     */
+    public void savePlayers(Collection<PlayerData> players) {
+        Runnable write = preparePlayerWrite(players);
+        if (write != null) {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, write);
+        }
+    }
+
+    /**
+     * Capture the dirty state of the given players now and return the file
+     * patching work, to be run on any thread. Returns null if nothing is dirty.
+     */
+    public Runnable preparePlayerWrite(Collection<PlayerData> players) {
+        Map<String, JsonObject> eloPatch = new HashMap<>();
+        Map<String, JsonObject> statsPatch = new HashMap<>();
+        Map<String, JsonObject> settingsPatch = new HashMap<>();
+
+        for (PlayerData data : players) {
+            String uuid = data.getUuid().toString();
+
+            Set<String> ladders = data.takeDirtyLadders();
+            if (!ladders.isEmpty()) {
+                JsonObject elo = new JsonObject();
+                JsonObject stats = new JsonObject();
+                for (String ladder : ladders) {
+                    PlayerData.LadderStats row = data.getStats(ladder);
+                    elo.addProperty(ladder, row.getElo());
+                    JsonObject statsObj = new JsonObject();
+                    statsObj.addProperty("wins", row.getWins());
+                    statsObj.addProperty("losses", row.getLosses());
+                    stats.add(ladder, statsObj);
+                }
+                eloPatch.put(uuid, elo);
+                statsPatch.put(uuid, stats);
+            }
+
+            if (data.takeSettingsDirty()) {
+                JsonObject settings = new JsonObject();
+                settings.addProperty("scoreboard_enabled", data.isScoreboardEnabled());
+                settings.addProperty("duel_requests", data.isDuelRequests());
+                settings.addProperty("party_invites", data.isPartyInvites());
+                settings.addProperty("spectator_visibility", data.isSpectatorVisibility());
+                settingsPatch.put(uuid, settings);
+            }
+        }
+
+        if (eloPatch.isEmpty() && settingsPatch.isEmpty()) return null;
+
+        if (sharded) {
+            return () -> {
+                Map<String, Map<String, JsonObject>> byPlayer = new HashMap<>();
+                eloPatch.forEach((uuid, elo) -> byPlayer.computeIfAbsent(uuid, k -> new HashMap<>()).put("elo", elo));
+                statsPatch.forEach((uuid, stats) -> byPlayer.computeIfAbsent(uuid, k -> new HashMap<>()).put("stats", stats));
+                settingsPatch.forEach((uuid, settings) -> byPlayer.computeIfAbsent(uuid, k -> new HashMap<>()).put("settings", settings));
+                for (Map.Entry<String, Map<String, JsonObject>> entry : byPlayer.entrySet()) {
+                    patchPlayerFile(UUID.fromString(entry.getKey()), entry.getValue());
+                }
+            };
+        }
+
+        return () -> {
+            if (!eloPatch.isEmpty()) {
+                patchFile(eloFile, eloPatch);
+                patchFile(statsFile, statsPatch);
+            }
+            if (!settingsPatch.isEmpty()) {
+                patchFile(settingsFile, settingsPatch);
+            }
+        };
+    }
+
+    /**
+     * Merge per-player objects into a file, replacing only the keys present in the patch.
+     * The file is streamed through to the replacement one player at a time; only
+     * patched players are materialised.
+     */
+    private synchronized void patchFile(File file, Map<String, JsonObject> patch) {
+        Set<String> remaining = new HashSet<>(patch.keySet());
+        try {
+            writeAtomically(file, writer -> {
+                writer.beginObject();
+                try (JsonReader reader = openReader(file)) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String key = reader.nextName();
+                        JsonObject update = patch.get(key);
+                        writer.name(key);
+                        if (update == null) {
+                            copyValue(reader, writer);
+                            continue;
+                        }
+
+                        JsonElement existing = new JsonParser().parse(reader);
+                        JsonObject target = existing.isJsonObject() ? existing.getAsJsonObject() : new JsonObject();
+                        for (Map.Entry<String, JsonElement> field : update.entrySet()) {
+                            target.add(field.getKey(), field.getValue());
+                        }
+                        gson.toJson(target, writer);
+                        remaining.remove(key);
+                    }
+                    reader.endObject();
+                } catch (JsonParseException | IllegalStateException e) {
+                    // Abandon the rewrite; the original file is left untouched
+                    throw new IOException("unreadable " + file.getName() + " (" + e.getMessage() + ")", e);
+                }
+
+                for (String key : remaining) {
+                    writer.name(key);
+                    gson.toJson(patch.get(key), writer);
+                }
+                writer.endObject();
+            });
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to save " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    // =========================================================================
+    // SHARDED PLAYER FILES
+    // =========================================================================
+
+    private File playerFile(UUID uuid) {
+        String name = uuid.toString();
+        return new File(new File(playersFolder, name.substring(0, 2)), name + ".json");
     }
 
-    public void saveAllKits(Map<UUID, Map<String, String>> data) {
-        JsonObject json = new JsonObject();
+    private File layoutFile(String hash) {
+        return new File(new File(layoutsFolder, hash.substring(0, 2)), hash + ".bin");
+    }
+
+    /**
+     * Read a player's kit assignments and layouts from their shard. Blocking;
+     * called from the async kit prefetch on join. The assignments stay cached
+     * until the player quits.
+     */
+    private Map<String, byte[]> loadShardedKits(UUID uuid) {
+        synchronized (evictionLock) {
+            // Joining again cancels an eviction still waiting from the last quit
+            pendingEvictions.remove(uuid);
+            kitLoads.merge(uuid, 1, Integer::sum);
+        }
+        try {
+            // Edits made while the load was in flight win over what is on disk
+            Map<String, String> ladderKits = kitAssignments.computeIfAbsent(uuid, k -> new ConcurrentHashMap<>());
+            JsonObject kits = readPlayerFile(uuid).getAsJsonObject("kits");
+            if (kits != null) {
+                for (Map.Entry<String, JsonElement> entry : kits.entrySet()) {
+                    ladderKits.putIfAbsent(entry.getKey(), entry.getValue().getAsString());
+                }
+            }
+            
+            Map<String, byte[]> result = new HashMap<>();
+            for (Map.Entry<String, String> entry : ladderKits.entrySet()) {
+                byte[] layout = kitLayouts.get(entry.getValue());
+                if (layout == null) {
+                    layout = readLayout(entry.getValue());
+                }
+                if (layout != null) {
+                    result.put(entry.getKey(), layout);
+                }
+            }
+            return result;
+        } finally {
+            finishKitLoad(uuid);
+        }
+    }
+
+    /**
+     * Carry out an eviction that arrived while the player's kits were loading,
+     * now that the load has cached them.
+     */
+    private void finishKitLoad(UUID uuid) {
+        synchronized (evictionLock) {
+            if (kitLoads.merge(uuid, -1, (loads, done) -> loads + done > 0 ? loads + done : null) != null) return;
+            if (pendingEvictions.contains(uuid) && !dirtyKits.contains(uuid)) {
+                pendingEvictions.remove(uuid);
+                kitAssignments.remove(uuid);
+            }
+        }
+    }
+
+    /**
+     * Drop a player's cached kit assignments once anything they changed is on
+     * disk and no load of their kits is still in flight.
+     */
+    public void evictPlayer(UUID uuid) {
+        if (!sharded) return;
+        synchronized (evictionLock) {
+            if (dirtyKits.contains(uuid) || kitLoads.containsKey(uuid)) {
+                pendingEvictions.add(uuid);
+            } else {
+                kitAssignments.remove(uuid);
+            }
+        }
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    /**
+     * Every player with saved kits. Single-file layout only; sharded
+     * players are listed per shard with {@link #listShard(String)}.
+     */
+    public Set<UUID> getKitOwners() {
+        return Collections.unmodifiableSet(kitAssignments.keySet());
+    }
+
+    /**
+     * Shard directory names (the leading UUID characters), sorted.
+     */
+    public List<String> listShards() {
+        String[] names = playersFolder.list();
+        if (names == null) return Collections.emptyList();
+        List<String> shards = new ArrayList<>(Arrays.asList(names));
+        Collections.sort(shards);
+        return shards;
+    }
+
+    /**
+     * Players stored in one shard, sorted by UUID string.
+     */
+    public List<UUID> listShard(String shard) {
+        String[] names = new File(playersFolder, shard).list();
+        if (names == null) return Collections.emptyList();
+        Arrays.sort(names);
+        List<UUID> players = new ArrayList<>(names.length);
+        for (String name : names) {
+            if (!name.endsWith(".json")) continue;
+            try {
+                players.add(UUID.fromString(name.substring(0, name.length() - 5)));
+            } catch (IllegalArgumentException ignored) {
+                // Not a player file
+            }
+        }
+        return players;
+    }
+
+    private void writeShardedKits() {
+        // Snapshot the assignments, then the layouts. A layout is stored before
+        // the assignment that points at it, so every hash in the first snapshot
+        // is in the second one or already on disk.
+        Map<UUID, Map<String, String>> assignments = new HashMap<>();
+        for (UUID uuid : new ArrayList<>(dirtyKits)) {
+            // Take the assignments before clearing the flag so a quit can't evict them mid-write
+            Map<String, String> ladderKits = kitAssignments.get(uuid);
+            dirtyKits.remove(uuid);
+            if (ladderKits != null) {
+                assignments.put(uuid, new HashMap<>(ladderKits));
+            }
+        }
+        Map<String, byte[]> layouts = new HashMap<>(kitLayouts);
         
-        for (Map.Entry<UUID, Map<String, String>> entry : data.entrySet()) {
-            JsonObject ladders = new JsonObject();
-            for (Map.Entry<String, String> ladderEntry : entry.getValue().entrySet()) {
-                ladders.addProperty(ladderEntry.getKey(), ladderEntry.getValue());
+        // Layouts first, so a player file never points at a missing layout
+        Set<String> failed = new HashSet<>();
+        for (Map.Entry<String, byte[]> entry : layouts.entrySet()) {
+            File file = layoutFile(entry.getKey());
+            try {
+                if (!file.exists()) {
+                    file.getParentFile().mkdirs();
+                    writeBytesAtomically(file, entry.getValue());
+                }
+                kitLayouts.remove(entry.getKey(), entry.getValue());
+            } catch (IOException e) {
+                failed.add(entry.getKey());
+                plugin.getLogger().severe("Failed to save kit layout " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+        
+        for (Map.Entry<UUID, Map<String, String>> player : assignments.entrySet()) {
+            UUID uuid = player.getKey();
+            if (!Collections.disjoint(failed, player.getValue().values())) {
+                dirtyKits.add(uuid);
+                continue;
+            }
+            
+            JsonObject kits = new JsonObject();
+            for (Map.Entry<String, String> entry : player.getValue().entrySet()) {
+                kits.addProperty(entry.getKey(), entry.getValue());
+            }
+            if (!patchPlayerFile(uuid, Collections.singletonMap("kits", kits))) {
+                dirtyKits.add(uuid);
+            }
+        }
+        
+        synchronized (evictionLock) {
+            pendingEvictions.removeIf(uuid -> {
+                if (dirtyKits.contains(uuid) || kitLoads.containsKey(uuid)) return false;
+                kitAssignments.remove(uuid);
+                return true;
+            });
+        }
+    }
+
+    private JsonObject readPlayerFile(UUID uuid) {
+        File file = playerFile(uuid);
+        if (!file.exists()) return new JsonObject();
+        try (JsonReader reader = openReader(file)) {
+            JsonElement root = new JsonParser().parse(reader);
+            return root.isJsonObject() ? root.getAsJsonObject() : new JsonObject();
+        } catch (IOException | JsonParseException e) {
+            plugin.getLogger().warning("Failed to read " + file.getName() + ": " + e.getMessage());
+            return new JsonObject();
+        }
+    }
+
+    /**
+     * Merge sections (kits, elo, stats, settings) into a player's file field by
+     * field; other values (the name) replace what was there.
+     * Returns false if the file could not be written.
+     */
+    private synchronized boolean patchPlayerFile(UUID uuid, Map<String, ? extends JsonElement> sections) {
+        JsonObject root = readPlayerFile(uuid);
+        for (Map.Entry<String, ? extends JsonElement> section : sections.entrySet()) {
+            if (!section.getValue().isJsonObject()) {
+                root.add(section.getKey(), section.getValue());
+                continue;
+            }
+            JsonElement existing = root.get(section.getKey());
+            JsonObject target = existing != null && existing.isJsonObject() ? existing.getAsJsonObject() : new JsonObject();
+            for (Map.Entry<String, JsonElement> field : section.getValue().getAsJsonObject().entrySet()) {
+                target.add(field.getKey(), field.getValue());
             }
-            json.add(entry.getKey().toString(), ladders);
+            root.add(section.getKey(), target);
+        }
+        
+        File file = playerFile(uuid);
+        file.getParentFile().mkdirs();
+        try {
+            writeAtomically(file, writer -> gson.toJson(root, writer));
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to save " + file.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private byte[] readLayout(String hash) {
+        File file = layoutFile(hash);
+        if (!file.exists()) return null;
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to read kit layout " + hash + ": " + e.getMessage());
+            return null;
         }
+    }
+
+    /**
+     * One-off move of kits.json into per-player shards. kits.json is emptied
+     * only after every shard has been written.
+     */
+    private void migrateKitsToShards() {
+        int players = kitAssignments.size();
+        dirtyKits.addAll(kitAssignments.keySet());
+        pendingEvictions.addAll(kitAssignments.keySet());
+        writeShardedKits();
         
-        saveJson(kitsFile, json);
+        if (!dirtyKits.isEmpty() || !kitLayouts.isEmpty()) {
+            plugin.getLogger().severe("Kit migration to sharded files incomplete; kits.json left in place");
+            return;
+        }
+        try {
+            Files.copy(kitsFile.toPath(), new File(dataFolder, "kits.json.migrated").toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+            writeAtomically(kitsFile, writer -> writer.beginObject().endObject());
+            plugin.log("&7Moved kits for &f" + players + " &7players into sharded files");
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to clear kits.json after migration: " + e.getMessage());
+        }
     }
 
     // =========================================================================
     // UTILITY
     // =========================================================================
 
-    private void saveJson(File file, JsonObject json) {
-        // Save asynchronously to prevent lag
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try (Writer writer = new FileWriter(file)) {
-                gson.toJson(json, writer);
-            } catch (IOException e) {
-                plugin.getLogger().severe("Failed to save " + file.getName() + ": " + e.getMessage());
+    /**
+     * Streams one document into a file.
+     */
+    private interface JsonBody {
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    private JsonReader openReader(File file) throws IOException {
+        return new JsonReader(new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE));
+    }
+
+    /**
+     * Write a file so readers only ever see the old or the new contents: the
+     * document goes to a temp file of its own, is fsynced, then renamed over
+     * the original. The temp file is removed if anything fails before that.
+     */
+    private void writeAtomically(File file, JsonBody body) throws IOException {
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        try {
+            try (FileOutputStream fileOut = new FileOutputStream(temp);
+                 JsonWriter writer = new JsonWriter(new BufferedWriter(
+                     new OutputStreamWriter(fileOut, StandardCharsets.UTF_8), BUFFER_SIZE))) {
+                if (prettyPrint) {
+                    writer.setIndent("  ");
+                }
+                body.write(writer);
+                writer.flush();
+                fileOut.getFD().sync();
             }
-        });
+
+            Files.move(temp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
     }
 
-    public void saveJsonSync(File file, JsonObject json) {
-        try (Writer writer = new FileWriter(file)) {
-            gson.toJson(json, writer);
+    private void writeBytesAtomically(File file, byte[] data) throws IOException {
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        try {
+            try (FileOutputStream fileOut = new FileOutputStream(temp)) {
+                fileOut.write(data);
+                fileOut.getFD().sync();
+            }
+
+            Files.move(temp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private void writeAsync(File file, JsonBody body) {
+        // Save asynchronously to prevent lag
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> writeLocked(file, body));
+    }
+
+    /**
+     * Replace a file while holding the same lock as the patch and kit writers,
+     * so a whole-file save can't land in the middle of a patch of that file.
+     */
+    private synchronized void writeLocked(File file, JsonBody body) {
+        try {
+            writeAtomically(file, body);
         } catch (IOException e) {
             plugin.getLogger().severe("Failed to save " + file.getName() + ": " + e.getMessage());
         }
     }
+
+    /**
+     * Copy the next value from reader to writer token by token.
+     */
+    private static void copyValue(JsonReader reader, JsonWriter writer) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copyValue(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
+                break;
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copyValue(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+                break;
+            case STRING:
+                writer.value(reader.nextString());
+                break;
+            case NUMBER:
+                // Keep the literal as written rather than round-tripping through double
+                writer.value(new NumberLiteral(reader.nextString()));
+                break;
+            case BOOLEAN:
+                writer.value(reader.nextBoolean());
+                break;
+            case NULL:
+                reader.nextNull();
+                writer.nullValue();
+                break;
+            default:
+                reader.skipValue();
+        }
+    }
+
+    /**
+     * A number token copied verbatim; JsonWriter writes a Number's toString() as is.
+     */
+    private static final class NumberLiteral extends Number {
+        private final String literal;
+
+        private NumberLiteral(String literal) {
+            this.literal = literal;
+        }
+
+        @Override public int intValue() { return (int) doubleValue(); }
+        @Override public long longValue() { return (long) doubleValue(); }
+        @Override public float floatValue() { return (float) doubleValue(); }
+        @Override public double doubleValue() { return Double.parseDouble(literal); }
+        @Override public String toString() { return literal; }
+    }
+
+    public void saveJsonSync(File file, JsonObject json) {
+        writeLocked(file, writer -> gson.toJson(json, writer));
+    }
 }
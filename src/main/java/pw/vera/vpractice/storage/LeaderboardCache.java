@@ -0,0 +1,137 @@
+package pw.vera.vpractice.storage;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import pw.vera.vpractice.vPractice;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-ladder leaderboard cache.
+ *
+ * Readers always get the last immutable snapshot and never wait on the
+ * loader. A ladder is first loaded when someone reads it, then rebuilt on
+ * an async thread on a fixed interval, or straight away when it is
+ * invalidated. Ladders nobody reads are never queried.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+public class LeaderboardCache {
+
+    /**
+     * Loads the top entries for a ladder. Called only from async threads.
+     */
+    public interface Loader {
+        List<StorageManager.LeaderboardEntry> load(String ladder, int limit) throws Exception;
+    }
+
+    private final vPractice plugin;
+    private final Loader loader;
+    private final int size;
+    private final long refreshTicks;
+
+    /** Latest snapshot per ladder; values are unmodifiable and replaced wholesale */
+    private final Map<String, List<StorageManager.LeaderboardEntry>> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, Long> loadedAt = new ConcurrentHashMap<>();
+
+    /** Ladders with a refresh running, and ladders invalidated while it ran */
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Set<String> stale = ConcurrentHashMap.newKeySet();
+
+    private BukkitTask task;
+
+    public LeaderboardCache(vPractice plugin, Loader loader, int size, long refreshSeconds) {
+        this.plugin = plugin;
+        this.loader = loader;
+        this.size = Math.max(1, size);
+        this.refreshTicks = Math.max(1L, refreshSeconds) * 20L;
+    }
+
+    /**
+     * Keep refreshing every ladder that has been read on the interval.
+     */
+    public void start() {
+        task = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+            for (String ladder : snapshots.keySet()) {
+                refresh(ladder);
+            }
+        }, refreshTicks, refreshTicks);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    // =========================================================================
+    // READ
+    // =========================================================================
+
+    /**
+     * The cached top entries for a ladder, at most {@code limit} and never more
+     * than the cache size. Empty until the first load completes. Never blocks.
+     */
+    public List<StorageManager.LeaderboardEntry> get(String ladder, int limit) {
+        String key = ladder.toLowerCase();
+        List<StorageManager.LeaderboardEntry> snapshot = snapshots.get(key);
+        if (snapshot == null) {
+            refresh(key);
+            return Collections.emptyList();
+        }
+        return limit < snapshot.size() ? snapshot.subList(0, limit) : snapshot;
+    }
+
+    /**
+     * Age of a ladder's snapshot in milliseconds, or -1 if it was never loaded.
+     */
+    public long getAge(String ladder) {
+        Long at = loadedAt.get(ladder.toLowerCase());
+        return at != null ? System.currentTimeMillis() - at : -1L;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // =========================================================================
+    // REFRESH
+    // =========================================================================
+
+    /**
+     * Mark a ladder's snapshot out of date (e.g. a ranked match ended) and
+     * rebuild it asynchronously. Readers keep the old snapshot until then.
+     */
+    public void invalidate(String ladder) {
+        String key = ladder.toLowerCase();
+        stale.add(key);
+        refresh(key);
+    }
+
+    private void refresh(String key) {
+        if (!refreshing.add(key)) return;
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                // Reload again if the ladder was invalidated while we were loading
+                do {
+                    stale.remove(key);
+                    List<StorageManager.LeaderboardEntry> rows = loader.load(key, size);
+                    snapshots.put(key, Collections.unmodifiableList(new ArrayList<>(rows)));
+                    loadedAt.put(key, System.currentTimeMillis());
+                } while (stale.contains(key));
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to refresh " + key + " leaderboard: " + e.getMessage());
+            } finally {
+                refreshing.remove(key);
+            }
+            // An invalidation between the last check and the remove could not start its own refresh
+            if (stale.contains(key)) {
+                refresh(key);
+            }
+        });
+    }
+}
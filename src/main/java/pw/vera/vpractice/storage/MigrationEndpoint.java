@@ -0,0 +1,115 @@
+package pw.vera.vpractice.storage;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One side of a storage migration. Ratings are not part of it: they live
+ * in the rating journal whatever the storage type, so there is nothing to
+ * move between backends.
+ *
+ * Records are read in key order (UUID string, then ladder) so a run can
+ * resume after the last key it wrote. Reads and writes are called from the
+ * migration thread only.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+public interface MigrationEndpoint {
+
+    /**
+     * Up to roughly {@code limit} kit records whose key sorts after {@code afterKey}.
+     * Empty once everything has been read.
+     */
+    List<KitRecord> readKits(String afterKey, int limit) throws Exception;
+
+    List<SettingsRecord> readSettings(String afterKey, int limit) throws Exception;
+
+    List<NameRecord> readNames(String afterKey, int limit) throws Exception;
+
+    void writeKits(List<KitRecord> batch) throws Exception;
+
+    void writeSettings(List<SettingsRecord> batch) throws Exception;
+
+    void writeNames(List<NameRecord> batch) throws Exception;
+
+    /**
+     * Flush anything buffered and release resources.
+     */
+    void close();
+
+    // =========================================================================
+    // RECORDS
+    // =========================================================================
+
+    abstract class Record {
+        public final UUID uuid;
+        public final String ladder;
+
+        Record(UUID uuid, String ladder) {
+            this.uuid = uuid;
+            this.ladder = ladder;
+        }
+
+        /**
+         * Checkpoint key. UUID strings are fixed width, so string order
+         * matches (uuid, ladder) order.
+         */
+        public String key() {
+            return uuid + ":" + ladder;
+        }
+
+        static UUID keyUuid(String key) {
+            return key.isEmpty() ? null : UUID.fromString(key.substring(0, 36));
+        }
+
+        static String keyLadder(String key) {
+            return key.isEmpty() ? "" : key.substring(37);
+        }
+    }
+
+    final class KitRecord extends Record {
+        public final String hash;
+        public final byte[] layout;
+
+        public KitRecord(UUID uuid, String ladder, String hash, byte[] layout) {
+            super(uuid, ladder);
+            this.hash = hash;
+            this.layout = layout;
+        }
+    }
+
+    /**
+     * Per-player toggles. {@code pingRange} is only stored by the SQL
+     * backends and is null when the source doesn't have it.
+     */
+    final class SettingsRecord extends Record {
+        public final boolean scoreboardEnabled;
+        public final boolean duelRequests;
+        public final boolean partyInvites;
+        public final boolean spectatorVisibility;
+        public final String pingRange;
+
+        public SettingsRecord(UUID uuid, boolean scoreboardEnabled, boolean duelRequests, boolean partyInvites,
+                              boolean spectatorVisibility, String pingRange) {
+            super(uuid, "");
+            this.scoreboardEnabled = scoreboardEnabled;
+            this.duelRequests = duelRequests;
+            this.partyInvites = partyInvites;
+            this.spectatorVisibility = spectatorVisibility;
+            this.pingRange = pingRange;
+        }
+    }
+
+    /**
+     * Last known username, for leaderboards and other offline lookups.
+     */
+    final class NameRecord extends Record {
+        public final String name;
+
+        public NameRecord(UUID uuid, String name) {
+            super(uuid, "");
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package pw.vera.vpractice.storage;
+
+import org.bukkit.Bukkit;
+import pw.vera.vpractice.vPractice;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * UUID -> username lookups for offline players (leaderboards, match
+ * results, party lines) without touching player files on the main thread.
+ *
+ * Recently used names live in a bounded LRU map; everything else is in the
+ * persistent index kept by the active backend (vpractice_players for
+ * MySQL/SQLite, names.log or the player files for JSON), which is updated
+ * whenever a player joins. Misses are loaded off the main thread and handed
+ * back to the caller on the main thread. Players who haven't joined since
+ * the index existed stay unknown until they next join.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+public class NameCache {
+
+    /**
+     * Persistent side of the cache. Called off the main thread.
+     */
+    interface Backend {
+        Map<UUID, String> load(Collection<UUID> uuids) throws Exception;
+        void save(UUID uuid, String name) throws Exception;
+    }
+
+    private final vPractice plugin;
+    private final Backend backend;
+    private final Executor asyncExecutor;
+    private final Map<UUID, String> names;
+
+    public NameCache(vPractice plugin, Backend backend, Executor asyncExecutor, int capacity) {
+        this.plugin = plugin;
+        this.backend = backend;
+        this.asyncExecutor = asyncExecutor;
+        int maxSize = Math.max(16, capacity);
+        this.names = new LinkedHashMap<UUID, String>(maxSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Cached name, or null if it isn't in memory. Never blocks.
+     */
+    public String getName(UUID uuid) {
+        synchronized (names) {
+            return names.get(uuid);
+        }
+    }
+
+    public String getName(UUID uuid, String fallback) {
+        String name = getName(uuid);
+        return name != null ? name : fallback;
+    }
+
+    /**
+     * Record a player's current name (on join). The index is only written
+     * when the name isn't already cached as-is.
+     */
+    public void update(UUID uuid, String name) {
+        String previous;
+        synchronized (names) {
+            previous = names.put(uuid, name);
+        }
+        if (name.equals(previous)) return;
+
+        asyncExecutor.execute(() -> {
+            try {
+                backend.save(uuid, name);
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to save name for " + uuid + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Look up names for a set of players and pass them to {@code callback}
+     * on the main thread: straight away if every name is cached, otherwise
+     * once the misses have been loaded. Players with no known name are
+     * absent from the map.
+     */
+    public void resolve(Collection<UUID> uuids, Consumer<Map<UUID, String>> callback) {
+        Map<UUID, String> found = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        synchronized (names) {
+            for (UUID uuid : uuids) {
+                String name = names.get(uuid);
+                if (name != null) {
+                    found.put(uuid, name);
+                } else {
+                    missing.add(uuid);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            callback.accept(found);
+            return;
+        }
+
+        asyncExecutor.execute(() -> {
+            Map<UUID, String> loaded = new HashMap<>();
+            try {
+                loaded.putAll(backend.load(missing));
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to load player names: " + e.getMessage());
+            }
+            synchronized (names) {
+                names.putAll(loaded);
+            }
+            found.putAll(loaded);
+            if (plugin.isEnabled()) {
+                Bukkit.getScheduler().runTask(plugin, () -> callback.accept(found));
+            }
+        });
+    }
+
+    public int size() {
+        synchronized (names) {
+            return names.size();
+        }
+    }
+}
@@ -2,10 +2,21 @@ package pw.vera.vpractice.storage;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 /**
  * Holds all data for a single player.
  * Used for caching and storage operations.
+ *
+ * Each ladder's rating and counters form one immutable {@link LadderStats}
+ * row that is swapped with a compare-and-set on every change, so updates
+ * never block or lose increments, and savers on other threads always read
+ * a row as it was between two updates. With SQL storage, rows are written
+ * on the main thread as ratings change (see
+ * {@link StorageManager#recordRating}) and read by the write-behind thread.
  * 
  * @author Vera Network
  * @version 1.0.0
@@ -16,11 +27,7 @@ public class PlayerData {
     private final String username;
     
     // ELO data per ladder
-    private final Map<String, Integer> elo = new ConcurrentHashMap<>();
-    private final Map<String, Integer> wins = new ConcurrentHashMap<>();
-    private final Map<String, Integer> losses = new ConcurrentHashMap<>();
-    private final Map<String, Integer> winStreak = new ConcurrentHashMap<>();
-    private final Map<String, Integer> bestStreak = new ConcurrentHashMap<>();
+    private final Map<String, AtomicReference<LadderStats>> ladders = new ConcurrentHashMap<>();
     
     // Settings
     private boolean scoreboardEnabled = true;
@@ -28,10 +35,14 @@ public class PlayerData {
     private boolean partyInvites = true;
     private boolean spectatorVisibility = true;
     
+    // Dirty tracking - only changed ladders/settings are persisted
+    private final Set<String> dirtyLadders = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean settingsDirty = new AtomicBoolean(false);
+    
     // Stats
     private long firstJoin;
     private long lastSeen;
-    private int totalMatches = 0;
+    private final AtomicInteger totalMatches = new AtomicInteger();
 
     public static final int DEFAULT_ELO = 1000;
 
@@ -51,67 +62,81 @@ public class PlayerData {
     public long getFirstJoin() { return firstJoin; }
     public long getLastSeen() { return lastSeen; }
 
+    /**
+     * Consistent rating and counters for a ladder (never null).
+     */
+    public LadderStats getStats(String ladder) {
+        AtomicReference<LadderStats> row = ladders.get(ladder.toLowerCase());
+        return row != null ? row.get() : LadderStats.EMPTY;
+    }
+
     public int getElo(String ladder) {
-        return elo.getOrDefault(ladder.toLowerCase(), DEFAULT_ELO);
+        return getStats(ladder).getElo();
     }
 
     public int getWins(String ladder) {
-        return wins.getOrDefault(ladder.toLowerCase(), 0);
+        return getStats(ladder).getWins();
     }
 
     public int getLosses(String ladder) {
-        return losses.getOrDefault(ladder.toLowerCase(), 0);
+        return getStats(ladder).getLosses();
     }
 
     public int getWinStreak(String ladder) {
-        return winStreak.getOrDefault(ladder.toLowerCase(), 0);
+        return getStats(ladder).getWinStreak();
     }
 
     public int getBestStreak(String ladder) {
-        return bestStreak.getOrDefault(ladder.toLowerCase(), 0);
+        return getStats(ladder).getBestStreak();
     }
 
     public int getTotalGames(String ladder) {
-        return getWins(ladder) + getLosses(ladder);
+        LadderStats stats = getStats(ladder);
+        return stats.getWins() + stats.getLosses();
     }
 
     public double getWinRate(String ladder) {
-        int total = getTotalGames(ladder);
+        LadderStats stats = getStats(ladder);
+        int total = stats.getWins() + stats.getLosses();
         if (total == 0) return 0.0;
-        return (getWins(ladder) * 100.0) / total;
+        return (stats.getWins() * 100.0) / total;
     }
 
     public int getGlobalElo() {
-        if (elo.isEmpty()) return DEFAULT_ELO;
         int total = 0;
-        for (int e : elo.values()) {
-            total += e;
+        int count = 0;
+        for (AtomicReference<LadderStats> row : ladders.values()) {
+            LadderStats stats = row.get();
+            if (stats.hasElo()) {
+                total += stats.getElo();
+                count++;
+            }
         }
-        return total / elo.size();
+        return count > 0 ? total / count : DEFAULT_ELO;
     }
 
     public int getTotalWins() {
         int total = 0;
-        for (int w : wins.values()) {
-            total += w;
+        for (AtomicReference<LadderStats> row : ladders.values()) {
+            total += row.get().getWins();
         }
         return total;
     }
 
     public int getTotalLosses() {
         int total = 0;
-        for (int l : losses.values()) {
-            total += l;
+        for (AtomicReference<LadderStats> row : ladders.values()) {
+            total += row.get().getLosses();
         }
         return total;
     }
 
+    public int getTotalMatches() {
+        return totalMatches.get();
+    }
+
     public Set<String> getLadders() {
-        Set<String> ladders = new HashSet<>();
-        ladders.addAll(elo.keySet());
-        ladders.addAll(wins.keySet());
-        ladders.addAll(losses.keySet());
-        return ladders;
+        return new HashSet<>(ladders.keySet());
     }
 
     // Settings getters
@@ -125,71 +150,191 @@ public class PlayerData {
     // =========================================================================
 
     public void setElo(String ladder, int value) {
-        elo.put(ladder.toLowerCase(), Math.max(0, value));
+        update(ladder, stats -> stats.withElo(Math.max(0, value)));
     }
 
     public void setWins(String ladder, int value) {
-        wins.put(ladder.toLowerCase(), Math.max(0, value));
+        update(ladder, stats -> stats.withCounters(Math.max(0, value), stats.losses, stats.winStreak, stats.bestStreak));
     }
 
     public void setLosses(String ladder, int value) {
-        losses.put(ladder.toLowerCase(), Math.max(0, value));
+        update(ladder, stats -> stats.withCounters(stats.wins, Math.max(0, value), stats.winStreak, stats.bestStreak));
     }
 
     public void setWinStreak(String ladder, int value) {
-        winStreak.put(ladder.toLowerCase(), Math.max(0, value));
+        update(ladder, stats -> stats.withCounters(stats.wins, stats.losses, Math.max(0, value), stats.bestStreak));
     }
 
     public void setBestStreak(String ladder, int value) {
-        bestStreak.put(ladder.toLowerCase(), Math.max(0, value));
+        update(ladder, stats -> stats.withCounters(stats.wins, stats.losses, stats.winStreak, Math.max(0, value)));
+    }
+
+    /**
+     * Replace a whole ladder row at once (used when loading).
+     */
+    public void setStats(String ladder, int elo, int wins, int losses, int winStreak, int bestStreak) {
+        LadderStats row = new LadderStats(Math.max(0, elo), Math.max(0, wins), Math.max(0, losses),
+            Math.max(0, winStreak), Math.max(0, bestStreak));
+        update(ladder, stats -> row);
     }
 
     public void setLastSeen(long time) { this.lastSeen = time; }
     public void setFirstJoin(long time) { this.firstJoin = time; }
 
     // Settings setters
-    public void setScoreboardEnabled(boolean enabled) { this.scoreboardEnabled = enabled; }
-    public void setDuelRequests(boolean enabled) { this.duelRequests = enabled; }
-    public void setPartyInvites(boolean enabled) { this.partyInvites = enabled; }
-    public void setSpectatorVisibility(boolean enabled) { this.spectatorVisibility = enabled; }
+    public void setScoreboardEnabled(boolean enabled) { this.scoreboardEnabled = enabled; settingsDirty.set(true); }
+    public void setDuelRequests(boolean enabled) { this.duelRequests = enabled; settingsDirty.set(true); }
+    public void setPartyInvites(boolean enabled) { this.partyInvites = enabled; settingsDirty.set(true); }
+    public void setSpectatorVisibility(boolean enabled) { this.spectatorVisibility = enabled; settingsDirty.set(true); }
 
     // =========================================================================
     // MODIFIERS
     // =========================================================================
 
     public void addElo(String ladder, int amount) {
-        setElo(ladder, getElo(ladder) + amount);
+        update(ladder, stats -> stats.withElo(Math.max(0, stats.getElo() + amount)));
     }
 
     public void removeElo(String ladder, int amount) {
-        setElo(ladder, Math.max(100, getElo(ladder) - amount)); // Min 100 ELO
+        update(ladder, stats -> stats.withElo(Math.max(100, stats.getElo() - amount))); // Min 100 ELO
     }
 
     public void addWin(String ladder) {
-        String l = ladder.toLowerCase();
-        wins.merge(l, 1, Integer::sum);
-        
-        // Update win streak
-        int streak = winStreak.getOrDefault(l, 0) + 1;
-        winStreak.put(l, streak);
-        
-        // Update best streak
-        int best = bestStreak.getOrDefault(l, 0);
-        if (streak > best) {
-            bestStreak.put(l, streak);
-        }
-        
-        totalMatches++;
+        update(ladder, LadderStats::withWin);
+        totalMatches.incrementAndGet();
     }
 
     public void addLoss(String ladder) {
+        update(ladder, LadderStats::withLoss);
+        totalMatches.incrementAndGet();
+    }
+
+    /**
+     * Apply a change to a ladder row with a compare-and-set loop, then mark
+     * the ladder dirty if the row actually changed. Marking after the swap
+     * means a saver that claims the dirty flag always reads this change or
+     * a later one.
+     */
+    private LadderStats update(String ladder, UnaryOperator<LadderStats> change) {
         String l = ladder.toLowerCase();
-        losses.merge(l, 1, Integer::sum);
-        
-        // Reset win streak on loss
-        winStreak.put(l, 0);
-        
-        totalMatches++;
+        AtomicReference<LadderStats> row = ladders.get(l);
+        if (row == null) {
+            row = ladders.computeIfAbsent(l, k -> new AtomicReference<>(LadderStats.EMPTY));
+        }
+        LadderStats previous;
+        LadderStats next;
+        do {
+            previous = row.get();
+            next = change.apply(previous);
+        } while (!row.compareAndSet(previous, next));
+        if (!next.sameAs(previous)) {
+            dirtyLadders.add(l);
+        }
+        return next;
+    }
+
+    // =========================================================================
+    // DIRTY TRACKING
+    // =========================================================================
+
+    public boolean isDirty() {
+        return !dirtyLadders.isEmpty() || settingsDirty.get();
+    }
+
+    public boolean isSettingsDirty() {
+        return settingsDirty.get();
+    }
+
+    /**
+     * Remove and return the ladders changed since the last call.
+     * Callers that fail to persist them should hand them back via {@link #markLaddersDirty}.
+     */
+    public Set<String> takeDirtyLadders() {
+        Set<String> taken = new HashSet<>();
+        for (Iterator<String> it = dirtyLadders.iterator(); it.hasNext(); ) {
+            taken.add(it.next());
+            it.remove();
+        }
+        return taken;
+    }
+
+    /**
+     * Clear and return the settings dirty flag.
+     */
+    public boolean takeSettingsDirty() {
+        return settingsDirty.getAndSet(false);
+    }
+
+    public void markLaddersDirty(Collection<String> ladders) {
+        dirtyLadders.addAll(ladders);
+    }
+
+    public void markSettingsDirty() {
+        settingsDirty.set(true);
+    }
+
+    /**
+     * Forget all pending changes, e.g. right after loading from storage.
+     */
+    public void clearDirty() {
+        dirtyLadders.clear();
+        settingsDirty.set(false);
+    }
+
+    // =========================================================================
+    // LADDER STATS
+    // =========================================================================
+
+    /**
+     * Immutable snapshot of one ladder: rating, wins, losses and streaks.
+     */
+    public static final class LadderStats {
+
+        static final LadderStats EMPTY = new LadderStats(Integer.MIN_VALUE, 0, 0, 0, 0);
+
+        // Integer.MIN_VALUE until a rating is set; read through getElo()
+        private final int elo;
+        private final int wins;
+        private final int losses;
+        private final int winStreak;
+        private final int bestStreak;
+
+        private LadderStats(int elo, int wins, int losses, int winStreak, int bestStreak) {
+            this.elo = elo;
+            this.wins = wins;
+            this.losses = losses;
+            this.winStreak = winStreak;
+            this.bestStreak = bestStreak;
+        }
+
+        public boolean hasElo() { return elo != Integer.MIN_VALUE; }
+        public int getElo() { return hasElo() ? elo : DEFAULT_ELO; }
+        public int getWins() { return wins; }
+        public int getLosses() { return losses; }
+        public int getWinStreak() { return winStreak; }
+        public int getBestStreak() { return bestStreak; }
+
+        boolean sameAs(LadderStats other) {
+            return elo == other.elo && wins == other.wins && losses == other.losses
+                && winStreak == other.winStreak && bestStreak == other.bestStreak;
+        }
+
+        LadderStats withElo(int value) {
+            return new LadderStats(value, wins, losses, winStreak, bestStreak);
+        }
+
+        LadderStats withCounters(int wins, int losses, int winStreak, int bestStreak) {
+            return new LadderStats(elo, wins, losses, winStreak, bestStreak);
+        }
+
+        LadderStats withWin() {
+            int streak = winStreak + 1;
+            return new LadderStats(elo, wins + 1, losses, streak, Math.max(bestStreak, streak));
+        }
+
+        LadderStats withLoss() {
+            return new LadderStats(elo, wins, losses + 1, 0, bestStreak);
+        }
     }
 
     // =========================================================================
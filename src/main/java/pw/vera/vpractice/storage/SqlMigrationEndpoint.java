@@ -0,0 +1,277 @@
+package pw.vera.vpractice.storage;
+
+import pw.vera.vpractice.kit.KitSerializer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * MySQL or SQLite side of a storage migration: kits, settings and the
+ * player name index.
+ *
+ * Reuses the live pool when the backend is the active one, otherwise opens
+ * a private pool for the length of the run. Rows are paged with a keyset on
+ * (uuid, ladder), so each read is an index range scan no matter how far in
+ * the run is.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+public class SqlMigrationEndpoint implements MigrationEndpoint {
+
+    private final StorageManager storage;
+    private final ConnectionPool pool;
+    private final boolean ownsPool;
+    private final boolean sqlite;
+
+    private static final String READ_KITS = "SELECT k.uuid, k.ladder, k.kit_data, l.hash, l.data " +
+        "FROM vpractice_kits k LEFT JOIN vpractice_kit_layouts l ON l.hash = k.layout_hash " +
+        "WHERE k.uuid > ? OR (k.uuid = ? AND k.ladder > ?) ORDER BY k.uuid, k.ladder LIMIT ?";
+
+    private static final String READ_SETTINGS = "SELECT uuid, scoreboard_enabled, duel_requests, party_invites, " +
+        "spectator_visibility, ping_range FROM vpractice_settings WHERE uuid > ? ORDER BY uuid LIMIT ?";
+
+    private static final String READ_NAMES = "SELECT uuid, username FROM vpractice_players " +
+        "WHERE uuid > ? ORDER BY uuid LIMIT ?";
+
+    public SqlMigrationEndpoint(StorageManager storage, StorageManager.StorageType type) throws Exception {
+        this.storage = storage;
+        this.sqlite = type == StorageManager.StorageType.SQLITE;
+        if (storage.getStorageType() == type) {
+            this.pool = storage.getPool();
+            this.ownsPool = false;
+        } else {
+            this.pool = storage.openPool(type);
+            this.ownsPool = true;
+            storage.createTables(type, pool);
+        }
+
+        // Compact tables store binary keys and ladder ids; only the plain layout is supported
+        if (!sqlite) {
+            try (Connection connection = pool.getConnection()) {
+                if (storage.isCompact(connection)) {
+                    close();
+                    throw new IllegalStateException("the compact MySQL schema cannot be migrated");
+                }
+            }
+        }
+    }
+
+    // =========================================================================
+    // READS
+    // =========================================================================
+
+    @Override
+    public List<KitRecord> readKits(String afterKey, int limit) throws Exception {
+        List<KitRecord> records = new ArrayList<>();
+        try (Connection connection = pool.getConnection();
+             PreparedStatement ps = prepareKeyset(connection, READ_KITS, afterKey, limit);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                UUID uuid = UUID.fromString(rs.getString("uuid"));
+                String ladder = rs.getString("ladder");
+                byte[] layout = rs.getBytes("data");
+                String hash = rs.getString("hash");
+
+                // Rows written before layouts were deduplicated hold Base64 inventories
+                if (layout == null) {
+                    String legacy = rs.getString("kit_data");
+                    if (legacy == null) continue;
+                    layout = KitSerializer.toBytes(KitSerializer.fromBase64(legacy));
+                    hash = KitSerializer.hash(layout);
+                }
+                records.add(new KitRecord(uuid, ladder, hash, layout));
+            }
+        }
+        return records;
+    }
+
+    @Override
+    public List<SettingsRecord> readSettings(String afterKey, int limit) throws Exception {
+        List<SettingsRecord> records = new ArrayList<>();
+        try (Connection connection = pool.getConnection();
+             PreparedStatement ps = preparePlayerKeyset(connection, READ_SETTINGS, afterKey, limit);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                records.add(new SettingsRecord(
+                    UUID.fromString(rs.getString("uuid")),
+                    rs.getBoolean("scoreboard_enabled"),
+                    rs.getBoolean("duel_requests"),
+                    rs.getBoolean("party_invites"),
+                    rs.getBoolean("spectator_visibility"),
+                    rs.getString("ping_range")
+                ));
+            }
+        }
+        return records;
+    }
+
+    @Override
+    public List<NameRecord> readNames(String afterKey, int limit) throws Exception {
+        List<NameRecord> records = new ArrayList<>();
+        try (Connection connection = pool.getConnection();
+             PreparedStatement ps = preparePlayerKeyset(connection, READ_NAMES, afterKey, limit);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                records.add(new NameRecord(UUID.fromString(rs.getString("uuid")), rs.getString("username")));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Keyset for tables with one row per player.
+     */
+    private PreparedStatement preparePlayerKeyset(Connection connection, String sql, String afterKey, int limit) throws SQLException {
+        UUID after = Record.keyUuid(afterKey);
+        PreparedStatement ps = connection.prepareStatement(sql);
+        ps.setString(1, after != null ? after.toString() : "");
+        ps.setInt(2, limit);
+        return ps;
+    }
+
+    private PreparedStatement prepareKeyset(Connection connection, String sql, String afterKey, int limit) throws SQLException {
+        UUID after = Record.keyUuid(afterKey);
+        String uuid = after != null ? after.toString() : "";
+        PreparedStatement ps = connection.prepareStatement(sql);
+        ps.setString(1, uuid);
+        ps.setString(2, uuid);
+        ps.setString(3, Record.keyLadder(afterKey));
+        ps.setInt(4, limit);
+        return ps;
+    }
+
+    // =========================================================================
+    // WRITES
+    // =========================================================================
+
+    @Override
+    public void writeKits(List<KitRecord> batch) throws Exception {
+        String insertLayout = sqlite
+            ? "INSERT OR IGNORE INTO vpractice_kit_layouts (hash, data) VALUES (?, ?)"
+            : "INSERT IGNORE INTO vpractice_kit_layouts (hash, data) VALUES (?, ?)";
+        List<String> upsertKit = sqlite
+            ? storage.sqliteUpsert("vpractice_kits", "uuid, ladder, layout_hash, kit_data", "?1, ?2, ?3, NULL",
+                "uuid, ladder", "layout_hash = ?3, kit_data = NULL")
+            : Collections.singletonList("INSERT INTO vpractice_kits (uuid, ladder, layout_hash, kit_data) " +
+              "VALUES (?, ?, ?, NULL) ON DUPLICATE KEY UPDATE layout_hash = VALUES(layout_hash), kit_data = NULL");
+
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            List<PreparedStatement> kitStatements = StorageManager.prepareAll(connection, upsertKit);
+            try (PreparedStatement layoutPs = connection.prepareStatement(insertLayout)) {
+                for (KitRecord record : batch) {
+                    layoutPs.setString(1, record.hash);
+                    layoutPs.setBytes(2, record.layout);
+                    layoutPs.addBatch();
+                }
+                layoutPs.executeBatch();
+                for (PreparedStatement kitPs : kitStatements) {
+                    for (KitRecord record : batch) {
+                        kitPs.setString(1, record.uuid.toString());
+                        kitPs.setString(2, record.ladder);
+                        kitPs.setString(3, record.hash);
+                        kitPs.addBatch();
+                    }
+                    kitPs.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                StorageManager.closeAll(kitStatements);
+            }
+        }
+    }
+
+    @Override
+    public void writeSettings(List<SettingsRecord> batch) throws Exception {
+        // A source without ping_range (JSON) leaves the target's value alone
+        List<String> upsertSettings = sqlite
+            ? storage.sqliteUpsert("vpractice_settings",
+                "uuid, scoreboard_enabled, duel_requests, party_invites, spectator_visibility, ping_range",
+                "?1, ?2, ?3, ?4, ?5, COALESCE(?6, 'ALL')", "uuid",
+                "scoreboard_enabled = ?2, duel_requests = ?3, party_invites = ?4, spectator_visibility = ?5, " +
+                "ping_range = COALESCE(?6, ping_range)")
+            : Collections.singletonList("INSERT INTO vpractice_settings (uuid, scoreboard_enabled, duel_requests, " +
+              "party_invites, spectator_visibility, ping_range) VALUES (?, ?, ?, ?, ?, COALESCE(?, 'ALL')) " +
+              "ON DUPLICATE KEY UPDATE scoreboard_enabled = VALUES(scoreboard_enabled), " +
+              "duel_requests = VALUES(duel_requests), party_invites = VALUES(party_invites), " +
+              "spectator_visibility = VALUES(spectator_visibility), ping_range = COALESCE(?, ping_range)");
+
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            List<PreparedStatement> statements = StorageManager.prepareAll(connection, upsertSettings);
+            try {
+                for (PreparedStatement ps : statements) {
+                    for (SettingsRecord record : batch) {
+                        ps.setString(1, record.uuid.toString());
+                        ps.setBoolean(2, record.scoreboardEnabled);
+                        ps.setBoolean(3, record.duelRequests);
+                        ps.setBoolean(4, record.partyInvites);
+                        ps.setBoolean(5, record.spectatorVisibility);
+                        ps.setString(6, record.pingRange);
+                        if (!sqlite) {
+                            ps.setString(7, record.pingRange);
+                        }
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                StorageManager.closeAll(statements);
+            }
+        }
+    }
+
+    @Override
+    public void writeNames(List<NameRecord> batch) throws Exception {
+        // Keep last_seen and created_at of players the target already knows
+        List<String> upsertPlayer = sqlite
+            ? storage.sqliteUpsert("vpractice_players", "uuid, created_at, last_seen, username", "?1, ?2, 0, ?3",
+                "uuid", "username = ?3")
+            : Collections.singletonList("INSERT INTO vpractice_players (uuid, created_at, last_seen, username) " +
+              "VALUES (?, ?, 0, ?) ON DUPLICATE KEY UPDATE username = VALUES(username)");
+
+        long now = System.currentTimeMillis();
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            List<PreparedStatement> statements = StorageManager.prepareAll(connection, upsertPlayer);
+            try {
+                for (PreparedStatement ps : statements) {
+                    for (NameRecord record : batch) {
+                        ps.setString(1, record.uuid.toString());
+                        ps.setLong(2, now);
+                        ps.setString(3, record.name);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                StorageManager.closeAll(statements);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.close();
+        }
+    }
+}
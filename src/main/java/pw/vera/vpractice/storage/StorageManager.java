@@ -1,15 +1,25 @@
 package pw.vera.vpractice.storage;
 
 import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.inventory.ItemStack;
+import pw.vera.vpractice.kit.Ladder;
+import pw.vera.vpractice.kit.KitSerializer;
 import pw.vera.vpractice.vPractice;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
- * Unified storage manager supporting both JSON/YAML and MySQL storage.
+ * Unified storage manager supporting JSON files, MySQL, or an embedded SQLite file.
  * Automatically handles data persistence based on configuration.
  * 
  * @author Vera Network
@@ -19,20 +29,58 @@ public class StorageManager {
 
     private final vPractice plugin;
     private StorageType storageType;
-    private Connection connection;
+    private ConnectionPool pool;
+    private WriteBehindQueue writeQueue;
+    private JsonStorage jsonStorage;
+    private LeaderboardCache leaderboardCache;
+    
+    // Compact MySQL schema: BINARY(16) uuids and SMALLINT ladder ids
+    private volatile boolean compactSchema = false;
+    private volatile CompactSchemaMigration migration;
+    private volatile StorageMigrator migrator;
+    private NameCache nameCache;
+    
+    // Whether the SQLite library understands INSERT ... ON CONFLICT DO UPDATE
+    private volatile boolean sqliteUpsert;
+    
+    // Kit writes waiting per "uuid:ladder"; only the newest layout is written
+    private final Map<String, PendingKit> pendingKits = new ConcurrentHashMap<>();
+    private final Map<String, Integer> ladderIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> ladderNames = new ConcurrentHashMap<>();
     
     // Cache for player data
     private final Map<UUID, PlayerData> playerDataCache = new ConcurrentHashMap<>();
     
+    // Runs blocking queries on Bukkit's async pool
+    private final Executor asyncExecutor;
+    
     // MySQL settings from config
     private String mysqlHost;
     private int mysqlPort;
     private String mysqlDatabase;
     private String mysqlUsername;
     private String mysqlPassword;
+    private int poolSize;
+    private long poolTimeout;
+    private long poolMaxLifetime;
+    private int writeBatchSize;
+    private int writeQueueCapacity;
+    private long writeFlushInterval;
+    private String sqliteFile;
+    private boolean compactSchemaEnabled;
+    private int migrationChunkSize;
+    private long migrationThrottle;
+    private int backendMigrationBatch;
+    private long backendMigrationThrottle;
+    private int nameCacheSize;
+    private int leaderboardSize;
+    private long leaderboardRefresh;
+
+    private static final long AUTOSAVE_FLUSH_TIMEOUT = 30000L;
 
     public StorageManager(vPractice plugin) {
         this.plugin = plugin;
+        this.asyncExecutor = task -> Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
         loadSettings();
         initialize();
     }
@@ -41,35 +89,77 @@ public class StorageManager {
         FileConfiguration config = plugin.getConfig();
         
         String type = config.getString("storage.type", "json").toLowerCase();
-        storageType = type.equals("mysql") ? StorageType.MYSQL : StorageType.JSON;
+        if (type.equals("mysql")) {
+            storageType = StorageType.MYSQL;
+        } else if (type.equals("sqlite")) {
+            storageType = StorageType.SQLITE;
+        } else {
+            storageType = StorageType.JSON;
+        }
         
         mysqlHost = config.getString("storage.mysql.host", "localhost");
         mysqlPort = config.getInt("storage.mysql.port", 3306);
         mysqlDatabase = config.getString("storage.mysql.database", "vpractice");
         mysqlUsername = config.getString("storage.mysql.username", "root");
         mysqlPassword = config.getString("storage.mysql.password", "");
+        poolSize = config.getInt("storage.mysql.pool-size", 10);
+        poolTimeout = config.getLong("storage.mysql.connection-timeout", 5000L);
+        poolMaxLifetime = config.getLong("storage.mysql.max-lifetime", 1800000L);
+        writeBatchSize = config.getInt("storage.mysql.write-behind.batch-size", 100);
+        writeQueueCapacity = config.getInt("storage.mysql.write-behind.capacity", 10000);
+        writeFlushInterval = config.getLong("storage.mysql.write-behind.flush-interval", 1000L);
+        leaderboardSize = config.getInt("storage.mysql.leaderboard.size", 10);
+        leaderboardRefresh = config.getLong("storage.mysql.leaderboard.refresh-interval", 60L);
+        sqliteFile = config.getString("storage.sqlite.file", "vpractice.db");
+        compactSchemaEnabled = config.getBoolean("storage.mysql.compact-schema", false);
+        migrationChunkSize = config.getInt("storage.mysql.migration.chunk-size", 1000);
+        migrationThrottle = config.getLong("storage.mysql.migration.throttle", 50L);
+        backendMigrationBatch = config.getInt("storage.migration.batch-size", 500);
+        backendMigrationThrottle = config.getLong("storage.migration.throttle", 50L);
+        nameCacheSize = config.getInt("storage.name-cache-size", 10000);
     }
 
     private void initialize() {
-        if (storageType == StorageType.MYSQL) {
-            if (connectMySQL()) {
-                createTables();
-                plugin.log("&aUsing &fMySQL &astorage");
+        if (isDatabase()) {
+            String name = storageType == StorageType.MYSQL ? "MySQL" : "SQLite";
+            boolean connected = storageType == StorageType.MYSQL ? connectMySQL() : connectSQLite();
+            if (connected) {
+                createTables(storageType, pool);
+                writeQueue = new WriteBehindQueue(this::writeBatch, plugin.getLogger(),
+                    writeQueueCapacity, writeBatchSize, writeFlushInterval);
+                writeQueue.start();
+                leaderboardCache = new LeaderboardCache(plugin, this::queryLeaderboard,
+                    leaderboardSize, leaderboardRefresh);
+                if (storageType == StorageType.MYSQL) {
+                    initSchema();
+                }
+                plugin.log("&aUsing &f" + name + " &astorage");
             } else {
-                plugin.log("&cFailed to connect to MySQL, falling back to JSON storage");
+                plugin.log("&cFailed to connect to " + name + ", falling back to JSON storage");
                 storageType = StorageType.JSON;
+                jsonStorage = new JsonStorage(plugin);
             }
         } else {
+            jsonStorage = new JsonStorage(plugin);
             plugin.log("&aUsing &fJSON &astorage");
         }
+        nameCache = new NameCache(plugin, new NameCache.Backend() {
+            @Override
+            public Map<UUID, String> load(Collection<UUID> uuids) throws SQLException {
+                return loadNames(uuids);
+            }
+
+            @Override
+            public void save(UUID uuid, String name) throws SQLException, IOException {
+                saveName(uuid, name);
+            }
+        }, asyncExecutor, nameCacheSize);
     }
 
     private boolean connectMySQL() {
         try {
-            Class.forName("com.mysql.jdbc.Driver");
-            String url = "jdbc:mysql://" + mysqlHost + ":" + mysqlPort + "/" + mysqlDatabase + 
-                "?useSSL=false&autoReconnect=true&useUnicode=true&characterEncoding=UTF-8";
-            connection = DriverManager.getConnection(url, mysqlUsername, mysqlPassword);
+            pool = openPool(StorageType.MYSQL);
+            plugin.log("&7MySQL connection pool started (&f" + poolSize + " &7connections)");
             return true;
         } catch (Exception e) {
             plugin.getLogger().severe("MySQL connection failed: " + e.getMessage());
@@ -77,7 +167,57 @@ public class StorageManager {
         }
     }
 
-    private void createTables() {
+    private boolean connectSQLite() {
+        try {
+            pool = openPool(StorageType.SQLITE);
+            plugin.log("&7SQLite database opened &8(" + sqliteFile + ")");
+            return true;
+        } catch (Exception e) {
+            plugin.getLogger().severe("SQLite open failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Open and start a pool for a database backend using the configured
+     * settings. Also used by the migration tool to reach a backend that is
+     * not the active one; the caller owns the returned pool.
+     */
+    ConnectionPool openPool(StorageType type) throws Exception {
+        ConnectionPool opened;
+        if (type == StorageType.MYSQL) {
+            Class.forName("com.mysql.jdbc.Driver");
+            String url = "jdbc:mysql://" + mysqlHost + ":" + mysqlPort + "/" + mysqlDatabase + 
+                "?useSSL=false&autoReconnect=true&useUnicode=true&characterEncoding=UTF-8" +
+                "&rewriteBatchedStatements=true";
+            opened = new ConnectionPool(url, mysqlUsername, mysqlPassword,
+                poolSize, poolTimeout, poolMaxLifetime);
+        } else if (type == StorageType.SQLITE) {
+            Class.forName("org.sqlite.JDBC");
+            File file = new File(plugin.getDataFolder(), sqliteFile);
+            // SQLite allows one writer at a time; a single shared connection keeps
+            // write-behind batches and queries ordered instead of fighting over the file lock
+            opened = new ConnectionPool("jdbc:sqlite:" + file.getAbsolutePath(), null, null,
+                1, poolTimeout, 0L);
+        } else {
+            throw new IllegalArgumentException(type + " is not a database backend");
+        }
+        opened.start();
+        return opened;
+    }
+
+    /**
+     * Create any missing tables for a database backend on the given pool.
+     */
+    void createTables(StorageType type, ConnectionPool target) {
+        if (type == StorageType.SQLITE) {
+            createSQLiteTables(target);
+        } else {
+            createTables(target);
+        }
+    }
+
+    private void createTables(ConnectionPool target) {
         String playerTable = "CREATE TABLE IF NOT EXISTS vpractice_players (" +
             "uuid VARCHAR(36) PRIMARY KEY," +
             "username VARCHAR(16) NOT NULL," +
@@ -105,8 +245,16 @@ public class StorageManager {
             "uuid VARCHAR(36) NOT NULL," +
             "ladder VARCHAR(32) NOT NULL," +
             "kit_data MEDIUMTEXT," +
+            "layout_hash CHAR(40) NULL," +
             "UNIQUE KEY unique_player_kit (uuid, ladder)," +
-            "INDEX idx_uuid (uuid)" +
+            "INDEX idx_uuid (uuid)," +
+            "INDEX idx_layout (layout_hash)" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+
+        // Each distinct layout is stored once, keyed by content hash
+        String kitLayoutsTable = "CREATE TABLE IF NOT EXISTS vpractice_kit_layouts (" +
+            "hash CHAR(40) PRIMARY KEY," +
+            "data BLOB NOT NULL" +
             ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
 
         String settingsTable = "CREATE TABLE IF NOT EXISTS vpractice_settings (" +
@@ -133,67 +281,192 @@ public class StorageManager {
             "INDEX idx_timestamp (timestamp DESC)" +
             ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
 
-        try (Statement stmt = connection.createStatement()) {
+        try (Connection connection = target.getConnection();
+             Statement stmt = connection.createStatement()) {
             stmt.executeUpdate(playerTable);
             stmt.executeUpdate(eloTable);
             stmt.executeUpdate(kitsTable);
+            stmt.executeUpdate(kitLayoutsTable);
             stmt.executeUpdate(settingsTable);
             stmt.executeUpdate(matchHistoryTable);
+            
+            // Tables created before layouts were deduplicated lack the hash column
+            if (!hasColumn(connection, "vpractice_kits", "layout_hash")) {
+                stmt.executeUpdate("ALTER TABLE vpractice_kits ADD COLUMN layout_hash CHAR(40) NULL, " +
+                    "ADD INDEX idx_layout (layout_hash)");
+            }
+
             plugin.log("&7MySQL tables initialized");
         } catch (SQLException e) {
             plugin.getLogger().severe("Failed to create tables: " + e.getMessage());
         }
     }
 
+    private boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getColumns(connection.getCatalog(), null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Detect which MySQL schema is live and start converting to the compact
+     * one in the background if it is enabled and not there yet.
+     */
+    private void initSchema() {
+        try (Connection connection = pool.getConnection()) {
+            if (isCompact(connection)) {
+                loadLadderIds(connection);
+                compactSchema = true;
+                plugin.log("&7Using compact MySQL schema &8(" + ladderIds.size() + " ladders)");
+                return;
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to inspect MySQL schema: " + e.getMessage());
+            return;
+        }
+
+        if (compactSchemaEnabled) {
+            migration = new CompactSchemaMigration(plugin, this, pool, writeQueue,
+                migrationChunkSize, migrationThrottle);
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, migration);
+        }
+    }
+
+    boolean isCompact(Connection connection) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getColumns(connection.getCatalog(), null, "vpractice_elo", "uuid")) {
+            return rs.next() && rs.getString("TYPE_NAME").toUpperCase().contains("BINARY");
+        }
+    }
+
+    /**
+     * Called by the migration when it ends. The connection is non-null only
+     * if the tables were swapped; it is used to load the ladder ids before
+     * any other borrower sees the new tables.
+     */
+    void onSchemaMigrationFinished(Connection connection) {
+        if (connection != null) {
+            try {
+                loadLadderIds(connection);
+                compactSchema = true;
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to load ladder ids: " + e.getMessage());
+            }
+        }
+        migration = null;
+    }
+
+    /**
+     * Same tables as {@link #createTables(ConnectionPool)} in SQLite's dialect. Indexes are
+     * declared separately, and the leaderboard index is composite so
+     * leaderboard reads are range scans.
+     */
+    private void createSQLiteTables(ConnectionPool target) {
+        String[] statements = {
+            "CREATE TABLE IF NOT EXISTS vpractice_players (" +
+                "uuid VARCHAR(36) PRIMARY KEY," +
+                "username VARCHAR(16) NOT NULL," +
+                "last_seen BIGINT DEFAULT 0," +
+                "created_at BIGINT DEFAULT 0)",
+
+            "CREATE TABLE IF NOT EXISTS vpractice_elo (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "uuid VARCHAR(36) NOT NULL," +
+                "ladder VARCHAR(32) NOT NULL," +
+                "elo INT DEFAULT 1000," +
+                "wins INT DEFAULT 0," +
+                "losses INT DEFAULT 0," +
+                "win_streak INT DEFAULT 0," +
+                "best_streak INT DEFAULT 0," +
+                "UNIQUE (uuid, ladder))",
+            "CREATE INDEX IF NOT EXISTS idx_elo_ladder_elo ON vpractice_elo (ladder, elo DESC)",
+
+            "CREATE TABLE IF NOT EXISTS vpractice_kits (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "uuid VARCHAR(36) NOT NULL," +
+                "ladder VARCHAR(32) NOT NULL," +
+                "kit_data TEXT," +
+                "layout_hash CHAR(40) NULL," +
+                "UNIQUE (uuid, ladder))",
+            "CREATE INDEX IF NOT EXISTS idx_kits_layout ON vpractice_kits (layout_hash)",
+
+            "CREATE TABLE IF NOT EXISTS vpractice_kit_layouts (" +
+                "hash CHAR(40) PRIMARY KEY," +
+                "data BLOB NOT NULL)",
+
+            "CREATE TABLE IF NOT EXISTS vpractice_settings (" +
+                "uuid VARCHAR(36) PRIMARY KEY," +
+                "scoreboard_enabled BOOLEAN DEFAULT 1," +
+                "duel_requests BOOLEAN DEFAULT 1," +
+                "party_invites BOOLEAN DEFAULT 1," +
+                "spectator_visibility BOOLEAN DEFAULT 1," +
+                "ping_range VARCHAR(16) DEFAULT 'ALL')",
+
+            "CREATE TABLE IF NOT EXISTS vpractice_match_history (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "match_id VARCHAR(64) NOT NULL," +
+                "winner_uuid VARCHAR(36)," +
+                "loser_uuid VARCHAR(36)," +
+                "ladder VARCHAR(32)," +
+                "ranked BOOLEAN DEFAULT 0," +
+                "elo_change INT DEFAULT 0," +
+                "duration BIGINT DEFAULT 0," +
+                "timestamp BIGINT DEFAULT 0)",
+            "CREATE INDEX IF NOT EXISTS idx_history_winner ON vpractice_match_history (winner_uuid, timestamp DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_history_loser ON vpractice_match_history (loser_uuid, timestamp DESC)"
+        };
+
+        try (Connection connection = target.getConnection();
+             Statement stmt = connection.createStatement()) {
+            // WAL appends each commit to a log rather than copying pages to a rollback
+            // journal first, which keeps the small write-behind batches cheap. Reads
+            // still share the pool's single connection, so they wait for writes.
+            stmt.execute("PRAGMA journal_mode=WAL");
+            sqliteUpsert = supportsUpsert(connection.getMetaData().getDatabaseProductVersion());
+            for (String sql : statements) {
+                stmt.executeUpdate(sql);
+            }
+
+            plugin.log("&7SQLite tables initialized");
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to create tables: " + e.getMessage());
+        }
+    }
+
     // =========================================================================
     // PLAYER DATA
     // =========================================================================
 
     public void loadPlayer(UUID uuid, String username) {
-        if (storageType == StorageType.MYSQL) {
-            loadPlayerMySQL(uuid, username);
+        if (isDatabase()) {
+            loadPlayerSQL(uuid, username);
         } else {
             loadPlayerJSON(uuid, username);
         }
     }
 
-    private void loadPlayerMySQL(UUID uuid, String username) {
+    private void loadPlayerSQL(UUID uuid, String username) {
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
+            try (Connection connection = pool.getConnection()) {
                 // Ensure player exists
-                String insertPlayer = "INSERT INTO vpractice_players (uuid, username, last_seen, created_at) " +
-                    "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE username = ?, last_seen = ?";
-                try (PreparedStatement ps = connection.prepareStatement(insertPlayer)) {
-                    long now = System.currentTimeMillis();
-                    ps.setString(1, uuid.toString());
-                    ps.setString(2, username);
-                    ps.setLong(3, now);
-                    ps.setLong(4, now);
-                    ps.setString(5, username);
-                    ps.setLong(6, now);
-                    ps.executeUpdate();
-                }
+                upsertPlayer(connection, uuid, username, System.currentTimeMillis());
 
                 // Load ELO data
                 PlayerData data = new PlayerData(uuid, username);
                 String selectElo = "SELECT ladder, elo, wins, losses, win_streak, best_streak FROM vpractice_elo WHERE uuid = ?";
                 try (PreparedStatement ps = connection.prepareStatement(selectElo)) {
-                    ps.setString(1, uuid.toString());
+                    setUuid(ps, 1, uuid);
                     ResultSet rs = ps.executeQuery();
                     while (rs.next()) {
-                        String ladder = rs.getString("ladder");
-                        data.setElo(ladder, rs.getInt("elo"));
-                        data.setWins(ladder, rs.getInt("wins"));
-                        data.setLosses(ladder, rs.getInt("losses"));
-                        data.setWinStreak(ladder, rs.getInt("win_streak"));
-                        data.setBestStreak(ladder, rs.getInt("best_streak"));
+                        String ladder = getLadder(rs, "ladder");
+                        data.setStats(ladder, rs.getInt("elo"), rs.getInt("wins"), rs.getInt("losses"),
+                            rs.getInt("win_streak"), rs.getInt("best_streak"));
                     }
                 }
 
                 // Load settings
                 String selectSettings = "SELECT * FROM vpractice_settings WHERE uuid = ?";
                 try (PreparedStatement ps = connection.prepareStatement(selectSettings)) {
-                    ps.setString(1, uuid.toString());
+                    setUuid(ps, 1, uuid);
                     ResultSet rs = ps.executeQuery();
                     if (rs.next()) {
                         data.setScoreboardEnabled(rs.getBoolean("scoreboard_enabled"));
@@ -203,6 +476,8 @@ public class StorageManager {
                     }
                 }
 
+                // Freshly loaded rows match the database
+                data.clearDirty();
                 playerDataCache.put(uuid, data);
             } catch (SQLException e) {
                 plugin.getLogger().severe("Failed to load player " + username + ": " + e.getMessage());
@@ -210,6 +485,75 @@ public class StorageManager {
         });
     }
 
+    // =========================================================================
+    // NAMES
+    // =========================================================================
+
+    private Map<UUID, String> loadNames(Collection<UUID> uuids) throws SQLException {
+        if (!isDatabase()) {
+            return jsonStorage.getNames(uuids);
+        }
+
+        Map<UUID, String> result = new HashMap<>();
+        StringBuilder sql = new StringBuilder("SELECT uuid, username FROM vpractice_players WHERE uuid IN (");
+        for (int i = 0; i < uuids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        try (Connection connection = pool.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (UUID uuid : uuids) {
+                setUuid(ps, index++, uuid);
+            }
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                result.put(getUuid(rs, "uuid"), rs.getString("username"));
+            }
+        }
+        return result;
+    }
+
+    private void saveName(UUID uuid, String name) throws SQLException, IOException {
+        if (!isDatabase()) {
+            jsonStorage.saveName(uuid, name);
+            return;
+        }
+        try (Connection connection = pool.getConnection()) {
+            upsertPlayer(connection, uuid, name, System.currentTimeMillis());
+        }
+    }
+
+    private void upsertPlayer(Connection connection, UUID uuid, String username, long now) throws SQLException {
+        if (isSQLite()) {
+            List<PreparedStatement> statements = prepareAll(connection, sqliteUpsert("vpractice_players",
+                "uuid, username, last_seen, created_at", "?1, ?2, ?3, ?3", "uuid", "username = ?2, last_seen = ?3"));
+            try {
+                for (PreparedStatement ps : statements) {
+                    setUuid(ps, 1, uuid);
+                    ps.setString(2, username);
+                    ps.setLong(3, now);
+                    ps.executeUpdate();
+                }
+            } finally {
+                closeAll(statements);
+            }
+        } else {
+            String insertPlayer = "INSERT INTO vpractice_players (uuid, username, last_seen, created_at) " +
+                "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE username = ?, last_seen = ?";
+            touch(uuid);
+            try (PreparedStatement ps = connection.prepareStatement(insertPlayer)) {
+                setUuid(ps, 1, uuid);
+                ps.setString(2, username);
+                ps.setLong(3, now);
+                ps.setLong(4, now);
+                ps.setString(5, username);
+                ps.setLong(6, now);
+                ps.executeUpdate();
+            }
+        }
+    }
+
     private void loadPlayerJSON(UUID uuid, String username) {
         // JSON data is loaded through EloManager's existing YAML system
         PlayerData data = new PlayerData(uuid, username);
@@ -218,63 +562,153 @@ public class StorageManager {
 
     public void savePlayer(UUID uuid) {
         PlayerData data = playerDataCache.get(uuid);
-        if (data == null) return;
+        if (data == null || !data.isDirty()) return;
 
-        if (storageType == StorageType.MYSQL) {
-            savePlayerMySQL(data);
+        if (isDatabase()) {
+            savePlayerSQL(data);
         }
         // JSON saving is handled by EloManager
     }
 
-    private void savePlayerMySQL(PlayerData data) {
+    private void savePlayerSQL(PlayerData data) {
+        if (writeQueue.enqueue(data)) return;
+
+        // Queue is saturated - write this record on its own rather than drop it
+        plugin.getLogger().warning("Write-behind queue full, saving " + data.getUsername() + " directly");
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
             try {
-                // Save ELO data
-                String upsertElo = "INSERT INTO vpractice_elo (uuid, ladder, elo, wins, losses, win_streak, best_streak) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE elo = ?, wins = ?, losses = ?, win_streak = ?, best_streak = ?";
-                
-                for (String ladder : data.getLadders()) {
-                    try (PreparedStatement ps = connection.prepareStatement(upsertElo)) {
-                        ps.setString(1, data.getUuid().toString());
-                        ps.setString(2, ladder);
-                        ps.setInt(3, data.getElo(ladder));
-                        ps.setInt(4, data.getWins(ladder));
-                        ps.setInt(5, data.getLosses(ladder));
-                        ps.setInt(6, data.getWinStreak(ladder));
-                        ps.setInt(7, data.getBestStreak(ladder));
-                        ps.setInt(8, data.getElo(ladder));
-                        ps.setInt(9, data.getWins(ladder));
-                        ps.setInt(10, data.getLosses(ladder));
-                        ps.setInt(11, data.getWinStreak(ladder));
-                        ps.setInt(12, data.getBestStreak(ladder));
-                        ps.executeUpdate();
+                writeBatch(Collections.singletonList(data));
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to save player " + data.getUsername() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Write a batch of player records in one transaction.
+     * Only ladders and settings marked dirty are written. Rows are batched
+     * per table; with rewriteBatchedStatements the driver sends each batch
+     * as a single multi-row upsert.
+     */
+    private void writeBatch(List<PlayerData> batch) throws SQLException {
+        List<String> upsertElo;
+        List<String> upsertSettings;
+        if (isSQLite()) {
+            upsertElo = sqliteUpsert("vpractice_elo", "uuid, ladder, elo, wins, losses, win_streak, best_streak",
+                "?1, ?2, ?3, ?4, ?5, ?6, ?7", "uuid, ladder",
+                "elo = ?3, wins = ?4, losses = ?5, win_streak = ?6, best_streak = ?7");
+            // ping_range isn't part of PlayerData, so it is left as it is
+            upsertSettings = sqliteUpsert("vpractice_settings",
+                "uuid, scoreboard_enabled, duel_requests, party_invites, spectator_visibility",
+                "?1, ?2, ?3, ?4, ?5", "uuid",
+                "scoreboard_enabled = ?2, duel_requests = ?3, party_invites = ?4, spectator_visibility = ?5");
+        } else {
+            upsertElo = Collections.singletonList(
+                "INSERT INTO vpractice_elo (uuid, ladder, elo, wins, losses, win_streak, best_streak) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE elo = VALUES(elo), wins = VALUES(wins), " +
+                "losses = VALUES(losses), win_streak = VALUES(win_streak), best_streak = VALUES(best_streak)");
+            upsertSettings = Collections.singletonList(
+                "INSERT INTO vpractice_settings (uuid, scoreboard_enabled, duel_requests, party_invites, spectator_visibility) " +
+                "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE scoreboard_enabled = VALUES(scoreboard_enabled), " +
+                "duel_requests = VALUES(duel_requests), party_invites = VALUES(party_invites), " +
+                "spectator_visibility = VALUES(spectator_visibility)");
+        }
+
+        // Claim dirty state up front so changes made mid-write are picked up next time
+        Map<PlayerData, Set<String>> dirtyLadders = new IdentityHashMap<>();
+        Set<PlayerData> dirtySettings = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (PlayerData data : batch) {
+            touch(data.getUuid());
+            Set<String> ladders = data.takeDirtyLadders();
+            if (!ladders.isEmpty()) dirtyLadders.put(data, ladders);
+            if (data.takeSettingsDirty()) dirtySettings.add(data);
+        }
+        if (dirtyLadders.isEmpty() && dirtySettings.isEmpty()) return;
+
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            List<PreparedStatement> eloStatements = prepareAll(connection, upsertElo);
+            List<PreparedStatement> settingsStatements = prepareAll(connection, upsertSettings);
+            try {
+                for (PreparedStatement eloPs : eloStatements) {
+                    for (Map.Entry<PlayerData, Set<String>> entry : dirtyLadders.entrySet()) {
+                        PlayerData data = entry.getKey();
+                        for (String ladder : entry.getValue()) {
+                            PlayerData.LadderStats stats = data.getStats(ladder);
+                            setUuid(eloPs, 1, data.getUuid());
+                            setLadder(eloPs, 2, ladder);
+                            eloPs.setInt(3, stats.getElo());
+                            eloPs.setInt(4, stats.getWins());
+                            eloPs.setInt(5, stats.getLosses());
+                            eloPs.setInt(6, stats.getWinStreak());
+                            eloPs.setInt(7, stats.getBestStreak());
+                            eloPs.addBatch();
+                        }
+                    }
+                    if (!dirtyLadders.isEmpty()) {
+                        eloPs.executeBatch();
                     }
                 }
 
-                // Save settings
-                String upsertSettings = "INSERT INTO vpractice_settings (uuid, scoreboard_enabled, duel_requests, party_invites, spectator_visibility) " +
-                    "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE scoreboard_enabled = ?, duel_requests = ?, party_invites = ?, spectator_visibility = ?";
-                try (PreparedStatement ps = connection.prepareStatement(upsertSettings)) {
-                    ps.setString(1, data.getUuid().toString());
-                    ps.setBoolean(2, data.isScoreboardEnabled());
-                    ps.setBoolean(3, data.isDuelRequests());
-                    ps.setBoolean(4, data.isPartyInvites());
-                    ps.setBoolean(5, data.isSpectatorVisibility());
-                    ps.setBoolean(6, data.isScoreboardEnabled());
-                    ps.setBoolean(7, data.isDuelRequests());
-                    ps.setBoolean(8, data.isPartyInvites());
-                    ps.setBoolean(9, data.isSpectatorVisibility());
-                    ps.executeUpdate();
+                for (PreparedStatement settingsPs : settingsStatements) {
+                    for (PlayerData data : dirtySettings) {
+                        setUuid(settingsPs, 1, data.getUuid());
+                        settingsPs.setBoolean(2, data.isScoreboardEnabled());
+                        settingsPs.setBoolean(3, data.isDuelRequests());
+                        settingsPs.setBoolean(4, data.isPartyInvites());
+                        settingsPs.setBoolean(5, data.isSpectatorVisibility());
+                        settingsPs.addBatch();
+                    }
+                    if (!dirtySettings.isEmpty()) {
+                        settingsPs.executeBatch();
+                    }
                 }
+                connection.commit();
             } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to save player " + data.getUsername() + ": " + e.getMessage());
+                connection.rollback();
+                throw e;
+            } finally {
+                closeAll(eloStatements);
+                closeAll(settingsStatements);
             }
-        });
+        } catch (SQLException e) {
+            // Nothing was committed - hand the dirty state back for the retry
+            for (Map.Entry<PlayerData, Set<String>> entry : dirtyLadders.entrySet()) {
+                entry.getKey().markLaddersDirty(entry.getValue());
+            }
+            for (PlayerData data : dirtySettings) {
+                data.markSettingsDirty();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Copy a changed ladder row into the player's cached record and queue it
+     * for writing, so the SQL backends keep vpractice_elo in step with the
+     * rating journal. Called
+     * from EloManager's rating listener with the whole row; the journal
+     * stays the source of truth. No-op for JSON storage.
+     */
+    public void recordRating(UUID uuid, String ladder, int elo, int wins, int losses, int winStreak, int bestStreak) {
+        if (!isDatabase()) return;
+        PlayerData data = playerDataCache.get(uuid);
+        if (data == null) {
+            data = playerDataCache.computeIfAbsent(uuid, k -> new PlayerData(k, nameCache.getName(k, k.toString())));
+        }
+        data.setStats(ladder, elo, wins, losses, winStreak, bestStreak);
+        if (data.isDirty()) {
+            // Coalesced per player, so a match's elo and stats changes go out as one write
+            savePlayerSQL(data);
+        }
     }
 
     public void unloadPlayer(UUID uuid) {
         savePlayer(uuid);
         playerDataCache.remove(uuid);
+        if (jsonStorage != null) {
+            jsonStorage.evictPlayer(uuid);
+        }
     }
 
     public PlayerData getPlayerData(UUID uuid) {
@@ -285,34 +719,51 @@ public class StorageManager {
     // LEADERBOARD QUERIES
     // =========================================================================
 
+    /**
+     * Start refreshing the cached leaderboards that have been read.
+     */
+    public void startLeaderboards() {
+        if (leaderboardCache == null) return;
+        leaderboardCache.start();
+    }
+
+    /**
+     * Top entries for a ladder from the cached snapshot, with usernames from
+     * the database. Never touches the database on the calling thread; the
+     * returned list is immutable. Empty for JSON storage. In-game
+     * leaderboards use EloManager's in-memory top lists instead.
+     */
     public List<LeaderboardEntry> getLeaderboard(String ladder, int limit) {
+        if (leaderboardCache == null) return Collections.emptyList();
+        return leaderboardCache.get(ladder, limit);
+    }
+
+    public LeaderboardCache getLeaderboardCache() {
+        return leaderboardCache;
+    }
+
+    private List<LeaderboardEntry> queryLeaderboard(String ladder, int limit) throws SQLException {
         List<LeaderboardEntry> entries = new ArrayList<>();
-        
-        if (storageType == StorageType.MYSQL) {
-            try {
-                String sql = "SELECT p.uuid, p.username, e.elo, e.wins, e.losses FROM vpractice_elo e " +
-                    "JOIN vpractice_players p ON e.uuid = p.uuid WHERE e.ladder = ? ORDER BY e.elo DESC LIMIT ?";
-                try (PreparedStatement ps = connection.prepareStatement(sql)) {
-                    ps.setString(1, ladder.toLowerCase());
-                    ps.setInt(2, limit);
-                    ResultSet rs = ps.executeQuery();
-                    int rank = 1;
-                    while (rs.next()) {
-                        entries.add(new LeaderboardEntry(
-                            UUID.fromString(rs.getString("uuid")),
-                            rs.getString("username"),
-                            rs.getInt("elo"),
-                            rs.getInt("wins"),
-                            rs.getInt("losses"),
-                            rank++
-                        ));
-                    }
+        try (Connection connection = pool.getConnection()) {
+            String sql = "SELECT p.uuid, p.username, e.elo, e.wins, e.losses FROM vpractice_elo e " +
+                "JOIN vpractice_players p ON e.uuid = p.uuid WHERE e.ladder = ? ORDER BY e.elo DESC LIMIT ?";
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                setLadder(ps, 1, ladder.toLowerCase());
+                ps.setInt(2, limit);
+                ResultSet rs = ps.executeQuery();
+                int rank = 1;
+                while (rs.next()) {
+                    entries.add(new LeaderboardEntry(
+                        getUuid(rs, "uuid"),
+                        rs.getString("username"),
+                        rs.getInt("elo"),
+                        rs.getInt("wins"),
+                        rs.getInt("losses"),
+                        rank++
+                    ));
                 }
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to get leaderboard: " + e.getMessage());
             }
         }
-        // For JSON, use EloManager's existing leaderboard method
         return entries;
     }
 
@@ -322,17 +773,17 @@ public class StorageManager {
 
     public void saveMatchResult(String matchId, UUID winner, UUID loser, String ladder, 
                                 boolean ranked, int eloChange, long duration) {
-        if (storageType == StorageType.MYSQL) {
+        if (isDatabase()) {
             Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-                try {
+                try (Connection connection = pool.getConnection()) {
                     String sql = "INSERT INTO vpractice_match_history " +
                         "(match_id, winner_uuid, loser_uuid, ladder, ranked, elo_change, duration, timestamp) " +
                         "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
                     try (PreparedStatement ps = connection.prepareStatement(sql)) {
                         ps.setString(1, matchId);
-                        ps.setString(2, winner.toString());
-                        ps.setString(3, loser.toString());
-                        ps.setString(4, ladder);
+                        setUuid(ps, 2, winner);
+                        setUuid(ps, 3, loser);
+                        setLadder(ps, 4, ladder.toLowerCase());
                         ps.setBoolean(5, ranked);
                         ps.setInt(6, eloChange);
                         ps.setLong(7, duration);
@@ -351,17 +802,25 @@ public class StorageManager {
     // =========================================================================
 
     public void saveKit(UUID uuid, String ladder, String kitData) {
-        if (storageType == StorageType.MYSQL) {
+        if (isDatabase()) {
             Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-                try {
-                    String sql = "INSERT INTO vpractice_kits (uuid, ladder, kit_data) VALUES (?, ?, ?) " +
-                        "ON DUPLICATE KEY UPDATE kit_data = ?";
-                    try (PreparedStatement ps = connection.prepareStatement(sql)) {
-                        ps.setString(1, uuid.toString());
-                        ps.setString(2, ladder.toLowerCase());
-                        ps.setString(3, kitData);
-                        ps.setString(4, kitData);
-                        ps.executeUpdate();
+                try (Connection connection = pool.getConnection()) {
+                    List<String> sql = isSQLite()
+                        ? sqliteUpsert("vpractice_kits", "uuid, ladder, kit_data, layout_hash", "?1, ?2, ?3, NULL",
+                            "uuid, ladder", "kit_data = ?3, layout_hash = NULL")
+                        : Collections.singletonList("INSERT INTO vpractice_kits (uuid, ladder, kit_data) VALUES (?, ?, ?) " +
+                          "ON DUPLICATE KEY UPDATE kit_data = VALUES(kit_data), layout_hash = NULL");
+                    touch(uuid);
+                    List<PreparedStatement> statements = prepareAll(connection, sql);
+                    try {
+                        for (PreparedStatement ps : statements) {
+                            setUuid(ps, 1, uuid);
+                            setLadder(ps, 2, ladder.toLowerCase());
+                            ps.setString(3, kitData);
+                            ps.executeUpdate();
+                        }
+                    } finally {
+                        closeAll(statements);
                     }
                 } catch (SQLException e) {
                     plugin.getLogger().severe("Failed to save kit: " + e.getMessage());
@@ -370,13 +829,108 @@ public class StorageManager {
         }
     }
 
+    /**
+     * Persist a kit layout in the compact binary form, off the main thread.
+     * The layout is encoded on the calling thread (ItemStacks are not thread-safe);
+     * identical layouts are stored once and shared by content hash.
+     *
+     * Writes for the same player and ladder run one at a time in save order.
+     * A save made while an earlier one is still waiting replaces it, so only
+     * the newest layout is written; the returned future completes once that
+     * layout is stored.
+     */
+    public CompletableFuture<Void> saveKitAsync(UUID uuid, String ladder, ItemStack[] kit) {
+        byte[] layout;
+        try {
+            layout = KitSerializer.toBytes(kit);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to encode kit for " + uuid + ": " + e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+        String hash = KitSerializer.hash(layout);
+        String ladderKey = ladder.toLowerCase();
+
+        if (!isDatabase()) {
+            jsonStorage.saveKitLayout(uuid, ladderKey, hash, layout);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String key = uuid + ":" + ladderKey;
+        PendingKit kitWrite = new PendingKit(uuid, ladderKey, hash, layout);
+        PendingKit previous = pendingKits.put(key, kitWrite);
+        if (previous != null) {
+            // A drain for this key is already running and will pick this one up after it
+            kitWrite.future.whenComplete((ignored, error) -> previous.future.complete(null));
+        } else {
+            asyncExecutor.execute(() -> drainKit(key));
+        }
+        return kitWrite.future;
+    }
+
+    /**
+     * Write the newest pending layout for one player and ladder until none
+     * is left. A drain is only started when the key had nothing pending, so
+     * there is never more than one per key.
+     */
+    private void drainKit(String key) {
+        while (true) {
+            PendingKit kitWrite = pendingKits.get(key);
+            if (kitWrite == null) return;
+            writeKit(kitWrite);
+            kitWrite.future.complete(null);
+            if (pendingKits.remove(key, kitWrite)) return;
+        }
+    }
+
+    private void writeKit(PendingKit kitWrite) {
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            String insertLayout = isSQLite()
+                ? "INSERT OR IGNORE INTO vpractice_kit_layouts (hash, data) VALUES (?, ?)"
+                : "INSERT IGNORE INTO vpractice_kit_layouts (hash, data) VALUES (?, ?)";
+            List<String> upsertKit = isSQLite()
+                ? sqliteUpsert("vpractice_kits", "uuid, ladder, layout_hash, kit_data", "?1, ?2, ?3, NULL",
+                    "uuid, ladder", "layout_hash = ?3, kit_data = NULL")
+                : Collections.singletonList("INSERT INTO vpractice_kits (uuid, ladder, layout_hash, kit_data) " +
+                  "VALUES (?, ?, ?, NULL) ON DUPLICATE KEY UPDATE layout_hash = VALUES(layout_hash), kit_data = NULL");
+            List<PreparedStatement> kitStatements = prepareAll(connection, upsertKit);
+            try (PreparedStatement layoutPs = connection.prepareStatement(insertLayout)) {
+                layoutPs.setString(1, kitWrite.hash);
+                layoutPs.setBytes(2, kitWrite.layout);
+                layoutPs.executeUpdate();
+
+                touch(kitWrite.uuid);
+                for (PreparedStatement kitPs : kitStatements) {
+                    setUuid(kitPs, 1, kitWrite.uuid);
+                    setLadder(kitPs, 2, kitWrite.ladder);
+                    kitPs.setString(3, kitWrite.hash);
+                    kitPs.executeUpdate();
+                }
+            } finally {
+                closeAll(kitStatements);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to save kit: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Blocking kit lookup. Never call this from the main thread;
+     * use {@link #loadKitAsync} or {@link #loadKitsAsync} instead.
+     */
+    @Deprecated
     public String loadKit(UUID uuid, String ladder) {
-        if (storageType == StorageType.MYSQL) {
-            try {
+        return queryKit(uuid, ladder);
+    }
+
+    private String queryKit(UUID uuid, String ladder) {
+        if (isDatabase()) {
+            try (Connection connection = pool.getConnection()) {
                 String sql = "SELECT kit_data FROM vpractice_kits WHERE uuid = ? AND ladder = ?";
                 try (PreparedStatement ps = connection.prepareStatement(sql)) {
-                    ps.setString(1, uuid.toString());
-                    ps.setString(2, ladder.toLowerCase());
+                    setUuid(ps, 1, uuid);
+                    setLadder(ps, 2, ladder.toLowerCase());
                     ResultSet rs = ps.executeQuery();
                     if (rs.next()) {
                         return rs.getString("kit_data");
@@ -389,6 +943,183 @@ public class StorageManager {
         return null;
     }
 
+    /**
+     * Load one kit layout off the main thread.
+     * Completes with null if the player has no saved layout for the ladder.
+     */
+    public CompletableFuture<ItemStack[]> loadKitAsync(UUID uuid, String ladder) {
+        return loadKitsAsync(uuid).thenApply(kits -> kits.get(ladder.toLowerCase()));
+    }
+
+    /**
+     * Ladder-id variant of {@link #loadKitAsync(UUID, String)}.
+     */
+    public CompletableFuture<ItemStack[]> loadKitAsync(UUID uuid, int ladderId) {
+        Ladder ladder = plugin.getKitManager().getLadder(ladderId);
+        if (ladder == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return loadKitAsync(uuid, ladder.getName());
+    }
+
+    /**
+     * Load every saved kit layout for a player in a single query, off the main thread.
+     * Completes with ladder name -> layout; empty if none are saved.
+     */
+    public CompletableFuture<Map<String, ItemStack[]>> loadKitsAsync(UUID uuid) {
+        if (!isDatabase()) {
+            // Sharded JSON reads the player's file here, so stay off the main thread
+            return CompletableFuture.supplyAsync(() -> {
+                Map<String, byte[]> layouts = jsonStorage.getKitLayouts(uuid);
+                Map<String, ItemStack[]> kits = new HashMap<>();
+                for (Map.Entry<String, byte[]> entry : layouts.entrySet()) {
+                    ItemStack[] kit = decodeLayout(entry.getValue());
+                    if (kit != null) {
+                        kits.put(entry.getKey(), kit);
+                    }
+                }
+                return kits;
+            }, asyncExecutor);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            Map<String, ItemStack[]> kits = new HashMap<>();
+            try (Connection connection = pool.getConnection()) {
+                String sql = "SELECT k.ladder, k.kit_data, l.data FROM vpractice_kits k " +
+                    "LEFT JOIN vpractice_kit_layouts l ON l.hash = k.layout_hash WHERE k.uuid = ?";
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    setUuid(ps, 1, uuid);
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) {
+                        byte[] layout = rs.getBytes("data");
+                        // Rows written before deduplication only have the legacy Base64 column
+                        ItemStack[] kit = layout != null ? decodeLayout(layout) : decodeKit(rs.getString("kit_data"));
+                        if (kit != null) {
+                            kits.put(getLadder(rs, "ladder"), kit);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to load kits for " + uuid + ": " + e.getMessage());
+            }
+            return kits;
+        }, asyncExecutor);
+    }
+
+    private ItemStack[] decodeLayout(byte[] layout) {
+        try {
+            return KitSerializer.fromBytes(layout);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Discarding unreadable kit layout: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private ItemStack[] decodeKit(String kitData) {
+        if (kitData == null || kitData.isEmpty()) return null;
+        try {
+            return KitSerializer.fromBase64(kitData);
+        } catch (IOException | IllegalArgumentException e) {
+            plugin.getLogger().warning("Discarding unreadable kit data: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // =========================================================================
+    // COLUMN ENCODING
+    // =========================================================================
+
+    /**
+     * Record a write to a player's rows while the compact schema migration
+     * is copying, so the copy is refreshed at cutover.
+     */
+    private void touch(UUID uuid) {
+        CompactSchemaMigration current = migration;
+        if (current != null) {
+            current.touch(uuid);
+        }
+    }
+
+    private void setUuid(PreparedStatement ps, int index, UUID uuid) throws SQLException {
+        if (uuid == null) {
+            ps.setNull(index, compactSchema ? Types.BINARY : Types.VARCHAR);
+        } else if (compactSchema) {
+            ps.setBytes(index, ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array());
+        } else {
+            ps.setString(index, uuid.toString());
+        }
+    }
+
+    private UUID getUuid(ResultSet rs, String column) throws SQLException {
+        if (compactSchema) {
+            byte[] bytes = rs.getBytes(column);
+            if (bytes == null) return null;
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+        String value = rs.getString(column);
+        return value != null ? UUID.fromString(value) : null;
+    }
+
+    private void setLadder(PreparedStatement ps, int index, String ladder) throws SQLException {
+        if (compactSchema) {
+            ps.setInt(index, ladderId(ps.getConnection(), ladder));
+        } else {
+            ps.setString(index, ladder);
+        }
+    }
+
+    private String getLadder(ResultSet rs, String column) throws SQLException {
+        if (!compactSchema) {
+            return rs.getString(column);
+        }
+        int id = rs.getInt(column);
+        if (rs.wasNull()) return null;
+        String name = ladderNames.get(id);
+        if (name == null) {
+            // Added by another server since we last looked
+            loadLadderIds(rs.getStatement().getConnection());
+            name = ladderNames.get(id);
+        }
+        return name;
+    }
+
+    private int ladderId(Connection connection, String ladder) throws SQLException {
+        Integer id = ladderIds.get(ladder);
+        if (id != null) return id;
+
+        try (PreparedStatement ps = connection.prepareStatement("INSERT IGNORE INTO vpractice_ladders (name) VALUES (?)")) {
+            ps.setString(1, ladder);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = connection.prepareStatement("SELECT id FROM vpractice_ladders WHERE name = ?")) {
+            ps.setString(1, ladder);
+            ResultSet rs = ps.executeQuery();
+            if (!rs.next()) {
+                throw new SQLException("No id for ladder " + ladder);
+            }
+            id = rs.getInt(1);
+        }
+        // Inside a transaction the new row could still be rolled back; only cache committed ids
+        if (connection.getAutoCommit()) {
+            ladderIds.put(ladder, id);
+            ladderNames.put(id, ladder);
+        }
+        return id;
+    }
+
+    private void loadLadderIds(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, name FROM vpractice_ladders")) {
+            while (rs.next()) {
+                ladderIds.put(rs.getString("name"), rs.getInt("id"));
+                ladderNames.put(rs.getInt("id"), rs.getString("name"));
+            }
+        }
+    }
+
     // =========================================================================
     // UTILITIES
     // =========================================================================
@@ -397,29 +1128,211 @@ public class StorageManager {
         return storageType;
     }
 
-    public boolean isConnected() {
-        if (storageType == StorageType.JSON) return true;
+    /**
+     * Whether data lives in a SQL database (MySQL or SQLite) rather than JSON files.
+     */
+    public boolean isDatabase() {
+        return storageType != StorageType.JSON;
+    }
+
+    private boolean isSQLite() {
+        return storageType == StorageType.SQLITE;
+    }
+
+    /**
+     * Statements for an SQLite upsert that updates the existing row in place;
+     * INSERT OR REPLACE would delete it and lose the columns not written.
+     * SQLite before 3.24 (older servers bundle 3.7.2) has no ON CONFLICT ...
+     * DO UPDATE, so there it is an INSERT OR IGNORE followed by an UPDATE.
+     * Parameters are numbered (?1, ?2, ...) with the key columns first, so
+     * every statement is bound the same way; the assignments must use the
+     * highest-numbered one, or the UPDATE can't be bound.
+     */
+    List<String> sqliteUpsert(String table, String columns, String values, String keys, String assignments) {
+        if (sqliteUpsert) {
+            return Collections.singletonList("INSERT INTO " + table + " (" + columns + ") VALUES (" + values + ") " +
+                "ON CONFLICT (" + keys + ") DO UPDATE SET " + assignments);
+        }
+        StringBuilder where = new StringBuilder();
+        String[] keyColumns = keys.split(",\\s*");
+        for (int i = 0; i < keyColumns.length; i++) {
+            where.append(i == 0 ? "" : " AND ").append(keyColumns[i]).append(" = ?").append(i + 1);
+        }
+        return Arrays.asList(
+            "INSERT OR IGNORE INTO " + table + " (" + columns + ") VALUES (" + values + ")",
+            "UPDATE " + table + " SET " + assignments + " WHERE " + where);
+    }
+
+    private static boolean supportsUpsert(String version) {
+        try {
+            String[] parts = version.split("\\.");
+            int major = Integer.parseInt(parts[0]);
+            int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            return major > 3 || (major == 3 && minor >= 24);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    static List<PreparedStatement> prepareAll(Connection connection, List<String> sql) throws SQLException {
+        List<PreparedStatement> statements = new ArrayList<>(sql.size());
         try {
-            return connection != null && !connection.isClosed();
+            for (String statement : sql) {
+                statements.add(connection.prepareStatement(statement));
+            }
         } catch (SQLException e) {
+            closeAll(statements);
+            throw e;
+        }
+        return statements;
+    }
+
+    static void closeAll(List<PreparedStatement> statements) {
+        for (PreparedStatement statement : statements) {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+                // Closing with the connection anyway
+            }
+        }
+    }
+
+    public boolean isConnected() {
+        if (storageType == StorageType.JSON) return true;
+        return pool != null && !pool.isClosed();
+    }
+
+    /**
+     * Connection pool backing MySQL/SQLite storage, or null in JSON mode.
+     * Exposes saturation stats (active/idle/waiting/timeouts).
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * File-backed storage, or null in MySQL/SQLite mode.
+     */
+    public JsonStorage getJsonStorage() {
+        return jsonStorage;
+    }
+
+    /**
+     * UUID -> username lookups for leaderboards and other offline-player displays.
+     */
+    public NameCache getNameCache() {
+        return nameCache;
+    }
+
+    /**
+     * Write-behind queue for player saves, or null in JSON mode.
+     */
+    public WriteBehindQueue getWriteQueue() {
+        return writeQueue;
+    }
+
+    /**
+     * Whether MySQL tables use BINARY(16) uuids and SMALLINT ladder ids.
+     */
+    public boolean isCompactSchema() {
+        return compactSchema;
+    }
+
+    // =========================================================================
+    // BACKEND MIGRATION
+    // =========================================================================
+
+    /**
+     * Start copying kits, settings and names from one backend to another in
+     * the background. Resumes from migration.yml if the same migration was
+     * interrupted. Returns false if one is already running.
+     */
+    public boolean startMigration(StorageType from, StorageType to, CommandSender sender) {
+        StorageMigrator current = migrator;
+        if (current != null && current.isRunning()) {
+            return false;
+        }
+        migrator = new StorageMigrator(plugin, this, from, to, sender,
+            backendMigrationBatch, backendMigrationThrottle);
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, migrator);
+        return true;
+    }
+
+    /**
+     * Delete kit layouts no player points at any more, off the main thread,
+     * and report the count to {@code sender}. Run by hand rather than at
+     * startup: a layout is written just before the kit row that points at
+     * it, so on a database shared by several servers a save in progress
+     * elsewhere would look unused. Returns false for JSON storage or while a
+     * backend migration is running.
+     */
+    public boolean pruneKitLayouts(CommandSender sender) {
+        StorageMigrator current = migrator;
+        if (!isDatabase() || (current != null && current.isRunning())) {
             return false;
         }
+        String sql = isSQLite()
+            ? "DELETE FROM vpractice_kit_layouts WHERE hash NOT IN " +
+              "(SELECT layout_hash FROM vpractice_kits WHERE layout_hash IS NOT NULL)"
+            : "DELETE l FROM vpractice_kit_layouts l " +
+              "LEFT JOIN vpractice_kits k ON k.layout_hash = l.hash WHERE k.layout_hash IS NULL";
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            String message;
+            try (Connection connection = pool.getConnection();
+                 Statement stmt = connection.createStatement()) {
+                message = "&aPruned &f" + stmt.executeUpdate(sql) + " &aunused kit layouts.";
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to prune kit layouts: " + e.getMessage());
+                message = "&cFailed to prune kit layouts: " + e.getMessage();
+            }
+            String reply = ChatColor.translateAlternateColorCodes('&', message);
+            if (plugin.isEnabled()) {
+                Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(reply));
+            }
+        });
+        return true;
+    }
+
+    /**
+     * The last started backend migration, or null.
+     */
+    public StorageMigrator getMigrator() {
+        return migrator;
     }
 
     public void shutdown() {
+        if (leaderboardCache != null) {
+            leaderboardCache.stop();
+        }
+        StorageMigrator runningMigrator = migrator;
+        if (runningMigrator != null) {
+            runningMigrator.cancel();
+        }
+        CompactSchemaMigration current = migration;
+        if (current != null) {
+            current.cancel();
+        }
+
         // Save all cached data
         for (UUID uuid : playerDataCache.keySet()) {
             savePlayer(uuid);
         }
+
+        // Write any kit edits still waiting on the JSON coalescing delay
+        if (jsonStorage != null) {
+            jsonStorage.flushKits();
+        }
+
+        // Flush everything still queued before the pool goes away
+        if (writeQueue != null) {
+            writeQueue.shutdown(10000L);
+            plugin.log("&7Write-behind queue flushed &8(" + writeQueue + ")");
+        }
         
-        // Close MySQL connection
-        if (connection != null) {
-            try {
-                connection.close();
-                plugin.log("&7MySQL connection closed");
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to close MySQL: " + e.getMessage());
-            }
+        // Close the database connection pool
+        if (pool != null) {
+            pool.close();
+            plugin.log("&7Database connection pool closed &8(" + pool + ")");
         }
     }
 
@@ -429,12 +1342,72 @@ public class StorageManager {
         }
     }
 
+    /**
+     * Capture every dirty cached record and return the work that writes it.
+     * Call on the main thread; the returned task may run on any thread and
+     * returns once the data is on disk / in the database.
+     */
+    public Runnable snapshotForSave() {
+        List<PlayerData> dirty = new ArrayList<>();
+        for (Iterator<PlayerData> it = playerDataCache.values().iterator(); it.hasNext(); ) {
+            PlayerData data = it.next();
+            if (data.isDirty()) {
+                dirty.add(data);
+            } else if (Bukkit.getPlayer(data.getUuid()) == null) {
+                // Rated after quitting (e.g. a forfeit) and already written
+                it.remove();
+            }
+        }
+
+        if (isDatabase()) {
+            // The write-behind queue already coalesces to the latest state; hand
+            // everything to it and wait for it to drain
+            for (PlayerData data : dirty) {
+                savePlayerSQL(data);
+            }
+            return () -> {
+                try {
+                    if (!writeQueue.flush(AUTOSAVE_FLUSH_TIMEOUT)) {
+                        plugin.getLogger().warning("Autosave: write-behind queue did not drain within " +
+                            AUTOSAVE_FLUSH_TIMEOUT + "ms (" + writeQueue + ")");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+        }
+
+        Runnable playerWrite = jsonStorage.preparePlayerWrite(dirty);
+        return () -> {
+            if (playerWrite != null) playerWrite.run();
+            jsonStorage.flushKits();
+        };
+    }
+
     // =========================================================================
     // INNER CLASSES
     // =========================================================================
 
     public enum StorageType {
-        JSON, MYSQL
+        JSON, MYSQL, SQLITE
+    }
+
+    /**
+     * A kit layout waiting to be written for one player and ladder.
+     */
+    private static final class PendingKit {
+        private final UUID uuid;
+        private final String ladder;
+        private final String hash;
+        private final byte[] layout;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingKit(UUID uuid, String ladder, String hash, byte[] layout) {
+            this.uuid = uuid;
+            this.ladder = ladder;
+            this.hash = hash;
+            this.layout = layout;
+        }
     }
 
     public static class LeaderboardEntry {
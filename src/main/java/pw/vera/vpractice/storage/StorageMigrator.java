@@ -0,0 +1,246 @@
+package pw.vera.vpractice.storage;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.configuration.file.YamlConfiguration;
+import pw.vera.vpractice.vPractice;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Copies kits, player settings and the name index from one storage
+ * backend to another in the background, a bounded batch at a time.
+ * First-seen and last-seen times are not copied; JSON doesn't keep them.
+ * Ratings are not copied either: the rating journal is their only store
+ * whatever the backend, so it needs no migration.
+ *
+ * After every written batch the last key is saved to migration.yml, so a
+ * run that is cancelled or cut short by a restart picks up where it left
+ * off when the same migration is started again. Writes are upserts, so
+ * replaying the batch that was in flight is harmless.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+public class StorageMigrator implements Runnable {
+
+    public enum Phase {
+        KITS, SETTINGS, NAMES, DONE
+    }
+
+    private static final long REPORT_INTERVAL = 10000L;
+
+    private final vPractice plugin;
+    private final StorageManager storage;
+    private final StorageManager.StorageType from;
+    private final StorageManager.StorageType to;
+    private final CommandSender sender;
+    private final int batchSize;
+    private final long throttleMillis;
+    private final File checkpointFile;
+
+    private volatile boolean cancelled = false;
+    private volatile boolean running = true;
+    private volatile Phase phase = Phase.KITS;
+    private volatile String lastKey = "";
+    private volatile long records = 0;
+
+    // Records copied by this run, for throughput
+    private volatile long runRecords = 0;
+    private final long startedAt = System.currentTimeMillis();
+
+    public StorageMigrator(vPractice plugin, StorageManager storage, StorageManager.StorageType from,
+                           StorageManager.StorageType to, CommandSender sender, int batchSize, long throttleMillis) {
+        this.plugin = plugin;
+        this.storage = storage;
+        this.from = from;
+        this.to = to;
+        this.sender = sender;
+        this.batchSize = Math.max(1, batchSize);
+        this.throttleMillis = Math.max(0L, throttleMillis);
+        this.checkpointFile = new File(plugin.getDataFolder(), "migration.yml");
+    }
+
+    /**
+     * Stop after the current batch. The checkpoint is kept.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void run() {
+        MigrationEndpoint source = null;
+        MigrationEndpoint target = null;
+        try {
+            loadCheckpoint();
+            source = open(from);
+            target = open(to);
+
+            report("&7Migrating " + from.name().toLowerCase() + " -> " + to.name().toLowerCase() +
+                (records > 0 ? " &8(resuming at " + phase.name().toLowerCase() + ", " + records + " records done)" : "") +
+                " &8(kits, settings, names; ratings stay in the rating journal; batches of " + batchSize + ")");
+
+            long lastReport = System.currentTimeMillis();
+            while (phase != Phase.DONE) {
+                if (cancelled) {
+                    report("&eMigration cancelled after &f" + records + " &erecords; run it again to resume");
+                    return;
+                }
+
+                List<? extends MigrationEndpoint.Record> batch = read(source);
+                if (batch.isEmpty()) {
+                    phase = Phase.values()[phase.ordinal() + 1];
+                    lastKey = "";
+                    saveCheckpoint();
+                    continue;
+                }
+
+                write(target, batch);
+                lastKey = batch.get(batch.size() - 1).key();
+                records += batch.size();
+                runRecords += batch.size();
+                saveCheckpoint();
+
+                if (System.currentTimeMillis() - lastReport >= REPORT_INTERVAL) {
+                    lastReport = System.currentTimeMillis();
+                    report("&7Migration: " + getStatus());
+                }
+                Thread.sleep(throttleMillis);
+            }
+
+            checkpointFile.delete();
+            report("&aMigration to " + to.name().toLowerCase() + " complete &8(" + records + " records, " +
+                (System.currentTimeMillis() - startedAt) / 1000L + "s, " + getThroughput() + " records/s)");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report("&eMigration interrupted after &f" + records + " &erecords; run it again to resume");
+        } catch (Exception e) {
+            plugin.getLogger().severe("Storage migration failed at " + phase + " " + lastKey + ": " + e.getMessage());
+            report("&cMigration failed: " + e.getMessage() + " &7(progress is saved; run it again to resume)");
+        } finally {
+            if (source != null) source.close();
+            if (target != null) target.close();
+            running = false;
+        }
+    }
+
+    private MigrationEndpoint open(StorageManager.StorageType type) throws Exception {
+        if (type == StorageManager.StorageType.JSON) {
+            return new JsonMigrationEndpoint(plugin, storage);
+        }
+        return new SqlMigrationEndpoint(storage, type);
+    }
+
+    private List<? extends MigrationEndpoint.Record> read(MigrationEndpoint source) throws Exception {
+        switch (phase) {
+            case KITS:
+                return source.readKits(lastKey, batchSize);
+            case SETTINGS:
+                return source.readSettings(lastKey, batchSize);
+            default:
+                return source.readNames(lastKey, batchSize);
+        }
+    }
+
+    private void write(MigrationEndpoint target, List<? extends MigrationEndpoint.Record> batch) throws Exception {
+        switch (phase) {
+            case KITS:
+                target.writeKits(kits(batch));
+                break;
+            case SETTINGS:
+                target.writeSettings(settings(batch));
+                break;
+            default:
+                target.writeNames(names(batch));
+                break;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<MigrationEndpoint.KitRecord> kits(List<? extends MigrationEndpoint.Record> batch) {
+        return (List<MigrationEndpoint.KitRecord>) batch;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<MigrationEndpoint.SettingsRecord> settings(List<? extends MigrationEndpoint.Record> batch) {
+        return (List<MigrationEndpoint.SettingsRecord>) batch;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<MigrationEndpoint.NameRecord> names(List<? extends MigrationEndpoint.Record> batch) {
+        return (List<MigrationEndpoint.NameRecord>) batch;
+    }
+
+    // =========================================================================
+    // CHECKPOINT
+    // =========================================================================
+
+    private void loadCheckpoint() {
+        if (!checkpointFile.exists()) return;
+
+        YamlConfiguration checkpoint = YamlConfiguration.loadConfiguration(checkpointFile);
+        if (!from.name().equals(checkpoint.getString("from")) || !to.name().equals(checkpoint.getString("to"))) {
+            plugin.log("&7Discarding checkpoint for a different migration &8(" +
+                checkpoint.getString("from") + " -> " + checkpoint.getString("to") + ")");
+            return;
+        }
+        try {
+            phase = Phase.valueOf(checkpoint.getString("phase", "KITS"));
+        } catch (IllegalArgumentException e) {
+            phase = Phase.KITS;
+        }
+        lastKey = checkpoint.getString("key", "");
+        records = checkpoint.getLong("records", 0L);
+    }
+
+    private void saveCheckpoint() throws IOException {
+        YamlConfiguration checkpoint = new YamlConfiguration();
+        checkpoint.set("from", from.name());
+        checkpoint.set("to", to.name());
+        checkpoint.set("phase", phase.name());
+        checkpoint.set("key", lastKey);
+        checkpoint.set("records", records);
+        checkpoint.save(checkpointFile);
+    }
+
+    // =========================================================================
+    // PROGRESS
+    // =========================================================================
+
+    /**
+     * Records per second copied by this run.
+     */
+    public long getThroughput() {
+        long elapsed = System.currentTimeMillis() - startedAt;
+        return elapsed > 0 ? runRecords * 1000L / elapsed : 0L;
+    }
+
+    public String getStatus() {
+        return phase.name().toLowerCase() + ", " + records + " records, " + getThroughput() + " records/s" +
+            (lastKey.isEmpty() ? "" : " (at " + lastKey + ")");
+    }
+
+    /**
+     * Log a progress line and tell whoever started the migration, on the main thread.
+     */
+    private void report(String message) {
+        plugin.log(message);
+        if (sender instanceof ConsoleCommandSender || !plugin.isEnabled()) return;
+        Bukkit.getScheduler().runTask(plugin, () ->
+            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', message)));
+    }
+
+    @Override
+    public String toString() {
+        return from.name().toLowerCase() + " -> " + to.name().toLowerCase() + ": " + getStatus();
+    }
+}
@@ -0,0 +1,292 @@
+package pw.vera.vpractice.storage;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Bounded write-behind queue for dirty player records. Every rating change
+ * is queued here (see {@link StorageManager#recordRating}).
+ *
+ * Saves are coalesced per UUID (a player saved three times before the
+ * next flush is written once) and handed to a dedicated writer thread
+ * in batches, so the caller never waits on the database.
+ *
+ * @author Vera Network
+ * @version 1.0.0
+ */
+public class WriteBehindQueue {
+
+    /**
+     * Writes one batch of records. Called only from the writer thread
+     * (or the shutdown thread after the writer has stopped).
+     */
+    public interface BatchWriter {
+        void write(List<PlayerData> batch) throws Exception;
+    }
+
+    private final BatchWriter writer;
+    private final Logger logger;
+    private final int capacity;
+    private final int batchSize;
+    private final long lingerMillis;
+
+    /** Pending records in first-dirtied order, guarded by lock */
+    private final LinkedHashMap<UUID, PlayerData> pending = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition idle = lock.newCondition();
+
+    private Thread thread;
+    private volatile boolean running = false;
+    private boolean writing = false;
+    private boolean flushRequested = false;
+
+    // Stats
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private static final long RETRY_BACKOFF_MILLIS = 2000L;
+
+    public WriteBehindQueue(BatchWriter writer, Logger logger, int capacity, int batchSize, long lingerMillis) {
+        this.writer = writer;
+        this.logger = logger;
+        this.capacity = Math.max(1, capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerMillis = Math.max(0L, lingerMillis);
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "vPractice-WriteBehind");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // =========================================================================
+    // PRODUCER
+    // =========================================================================
+
+    /**
+     * Mark a record dirty. Never blocks.
+     *
+     * @return false if the queue is full and the record was not accepted
+     */
+    public boolean enqueue(PlayerData data) {
+        lock.lock();
+        try {
+            if (pending.containsKey(data.getUuid())) {
+                // Same object or a newer copy - either way only the latest state is written
+                pending.put(data.getUuid(), data);
+                coalesced.incrementAndGet();
+                return true;
+            }
+            if (pending.size() >= capacity) {
+                notEmpty.signal();
+                return false;
+            }
+            pending.put(data.getUuid(), data);
+            enqueued.incrementAndGet();
+            if (pending.size() >= batchSize) {
+                notEmpty.signal();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // =========================================================================
+    // WRITER THREAD
+    // =========================================================================
+
+    private void run() {
+        while (running) {
+            List<PlayerData> batch;
+            try {
+                batch = awaitBatch();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (batch.isEmpty()) continue;
+
+            if (!writeBatch(batch)) {
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MILLIS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for a full batch, or for the linger time to pass with a partial one.
+     */
+    private List<PlayerData> awaitBatch() throws InterruptedException {
+        lock.lock();
+        try {
+            while (running && pending.isEmpty()) {
+                notEmpty.await();
+            }
+            long remaining = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+            while (running && !flushRequested && pending.size() < batchSize && remaining > 0) {
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            return takeBatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Must hold lock */
+    private List<PlayerData> takeBatch() {
+        List<PlayerData> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<PlayerData> it = pending.values().iterator();
+        while (it.hasNext() && batch.size() < batchSize) {
+            batch.add(it.next());
+            it.remove();
+        }
+        writing = !batch.isEmpty();
+        if (pending.isEmpty()) flushRequested = false;
+        return batch;
+    }
+
+    private boolean writeBatch(List<PlayerData> batch) {
+        boolean ok = true;
+        try {
+            writer.write(batch);
+            written.addAndGet(batch.size());
+            batches.incrementAndGet();
+        } catch (Exception e) {
+            ok = false;
+            failures.incrementAndGet();
+            logger.warning("Write-behind batch of " + batch.size() + " failed, requeueing: " + e.getMessage());
+            requeue(batch);
+        } finally {
+            lock.lock();
+            try {
+                writing = false;
+                if (pending.isEmpty()) idle.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return ok;
+    }
+
+    private void requeue(List<PlayerData> batch) {
+        lock.lock();
+        try {
+            for (PlayerData data : batch) {
+                // A newer save may have arrived while we were writing; keep that one
+                pending.putIfAbsent(data.getUuid(), data);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write everything pending now, skipping the linger delay, and wait
+     * until the queue is empty and no batch is in flight.
+     *
+     * @return true if the queue drained within the timeout
+     */
+    public boolean flush(long timeoutMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            if (pending.isEmpty() && !writing) return true;
+            flushRequested = true;
+            notEmpty.signal();
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while ((writing || !pending.isEmpty()) && remaining > 0) {
+                remaining = idle.awaitNanos(remaining);
+            }
+            return pending.isEmpty() && !writing;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // =========================================================================
+    // SHUTDOWN
+    // =========================================================================
+
+    /**
+     * Stop the writer and flush everything still pending on the calling thread.
+     * Blocks until the queue is empty or a batch fails.
+     */
+    public void shutdown(long timeoutMillis) {
+        // Let the writer finish the batch it is working on
+        lock.lock();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (writing && remaining > 0) {
+                remaining = idle.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Drain synchronously
+        while (true) {
+            List<PlayerData> batch;
+            lock.lock();
+            try {
+                batch = takeBatch();
+            } finally {
+                lock.unlock();
+            }
+            if (batch.isEmpty()) break;
+            if (!writeBatch(batch)) {
+                logger.severe("Giving up on " + getPending() + " unsaved player records during shutdown");
+                break;
+            }
+        }
+    }
+
+    // =========================================================================
+    // STATS
+    // =========================================================================
+
+    public int getPending() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getEnqueued() { return enqueued.get(); }
+    public long getCoalesced() { return coalesced.get(); }
+    public long getWritten() { return written.get(); }
+    public long getBatches() { return batches.get(); }
+    public long getFailures() { return failures.get(); }
+
+    @Override
+    public String toString() {
+        return "WriteBehindQueue{pending=" + getPending() + ", written=" + written.get() +
+               ", batches=" + batches.get() + ", coalesced=" + coalesced.get() +
+               ", failures=" + failures.get() + "}";
+    }
+}
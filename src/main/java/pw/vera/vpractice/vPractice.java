@@ -14,6 +14,7 @@ import pw.vera.vpractice.match.MatchManager;
 import pw.vera.vpractice.match.PartyMatchManager;
 import pw.vera.vpractice.party.PartyManager;
 import pw.vera.vpractice.queue.QueueManager;
+import pw.vera.vpractice.storage.AutoSaveTask;
 import pw.vera.vpractice.storage.StorageManager;
 
 /**
@@ -38,6 +39,7 @@ public class vPractice extends JavaPlugin {
     
     // Storage
     private StorageManager storageManager;
+    private AutoSaveTask autoSaveTask;
     
     // Core managers
     private ArenaManager arenaManager;
@@ -109,6 +111,11 @@ public class vPractice extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        // Stop matchmaking before ending matches so nothing new starts
+        if (queueManager != null) {
+            queueManager.shutdown();
+        }
+        
         // Shutdown matches
         if (matchManager != null) {
             matchManager.shutdown();
@@ -118,8 +125,11 @@ public class vPractice extends JavaPlugin {
         }
         
         // Persist data
+        if (autoSaveTask != null) {
+            autoSaveTask.stop();
+        }
         if (eloManager != null) {
-            eloManager.saveAll();
+            eloManager.shutdown();
         }
         if (kitManager != null) {
             kitManager.saveAll();
@@ -174,6 +184,7 @@ public class vPractice extends JavaPlugin {
         spawnManager = new SpawnManager(this);
         arenaManager = new ArenaManager(this);
         kitManager = new KitManager(this);
+        storageManager.startLeaderboards();
         eloManager = new EloManager(this);
         partyManager = new PartyManager(this);
         matchManager = new MatchManager(this);
@@ -189,6 +200,10 @@ public class vPractice extends JavaPlugin {
         modModeManager = new ModModeManager(this);
         announcementManager = new AnnouncementManager(this);
         rematchManager = new RematchManager(this);
+        
+        // Autosave last - it snapshots state owned by the managers above
+        autoSaveTask = new AutoSaveTask(this);
+        autoSaveTask.start();
     }
 
     private void registerCommands() {
@@ -239,6 +254,7 @@ public class vPractice extends JavaPlugin {
         entityClearInterval = getConfig().getInt("performance.entity-clear-interval", 1200);
         matchesPerTick = getConfig().getInt("performance.matches-per-tick", 5);
         if (queueManager != null) queueManager.updateSettings();
+        if (eloManager != null) eloManager.updateSettings();
     }
 
     // =========================================================================
@@ -248,6 +264,7 @@ public class vPractice extends JavaPlugin {
     public static vPractice getInstance() { return instance; }
     public qRanks getQRanks() { return qranks; }
     public StorageManager getStorageManager() { return storageManager; }
+    public AutoSaveTask getAutoSaveTask() { return autoSaveTask; }
 
     public int getPartyMaxSize() { return partyMaxSize; }
     public int getEntityClearInterval() { return entityClearInterval; }